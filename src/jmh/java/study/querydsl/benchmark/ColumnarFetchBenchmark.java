@@ -0,0 +1,80 @@
+package study.querydsl.benchmark;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import study.querydsl.dto.MemberColumns;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.repository.MemberRepository;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+//팀별 평균 나이 리포트 - List<Tuple>로 받아서 집계 vs MemberColumns로 받아서 집계
+//힙/GC 차이는 -prof gc 로 확인 ex) ./gradlew jmh -PjmhArgs="ColumnarFetchBenchmark -prof gc"
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ColumnarFetchBenchmark {
+
+    private JPAQueryFactory query;
+    private MemberRepository memberRepository;
+    private MemberSearchCondition condition;
+
+    @Setup
+    public void setUp(MemberDataSet data) {
+        query = new JPAQueryFactory(data.em);
+        memberRepository = data.getBean(MemberRepository.class);
+
+        //나이 조건 하나, 전체의 절반 정도
+        condition = new MemberSearchCondition();
+        condition.setAgeGoe(50);
+    }
+
+    @Benchmark
+    public Map<String, Double> tuples(MemberDataSet data) {
+        return data.readOnly(() -> {
+            List<Tuple> rows = query
+                    .select(member.id, member.username, member.age, team.id, team.name)
+                    .from(member)
+                    .leftJoin(member.team, team)
+                    .where(member.age.goe(condition.getAgeGoe()))
+                    .fetch();
+
+            Map<String, long[]> sums = new HashMap<>();
+            for (Tuple row : rows) {
+                long[] sum = sums.computeIfAbsent(row.get(team.name), name -> new long[2]);
+                sum[0] += row.get(member.age);
+                sum[1]++;
+            }
+            Map<String, Double> result = new HashMap<>();
+            sums.forEach((name, sum) -> result.put(name, (double) sum[0] / sum[1]));
+            return result;
+        });
+    }
+
+    @Benchmark
+    public Map<String, Double> columns(MemberDataSet data) {
+        return data.readOnly(() -> {
+            MemberColumns columns = memberRepository.fetchColumns(condition);
+            return columns.averageAgeByTeamName();
+        });
+    }
+}
@@ -0,0 +1,85 @@
+package study.querydsl.benchmark;
+
+import jakarta.persistence.EntityManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.service.MemberBulkLoader;
+import study.querydsl.service.MemberBulkLoader.NewMember;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+//회원 적재 방식별 처리량(rows/s) 비교
+//persistLoop = 기존 InitMember 방식(한 트랜잭션에서 em.persist 반복, flush/clear 없음)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class MemberBulkLoadBenchmark {
+
+    private static final int ROWS = 10_000;
+
+    private EntityManager em;
+    private MemberBulkLoader memberBulkLoader;
+    private JdbcTemplate jdbcTemplate;
+    private long seededMembers;
+
+    @Setup
+    public void setUp(MemberDataSet data) {
+        em = data.em;
+        memberBulkLoader = data.getBean(MemberBulkLoader.class);
+        jdbcTemplate = data.getBean(JdbcTemplate.class);
+        seededMembers = data.members;
+    }
+
+    //적재한 회원은 iteration마다 지워서 테이블 크기를 일정하게 유지
+    @TearDown(Level.Iteration)
+    public void deleteLoaded() {
+        jdbcTemplate.update("delete from member where member_id > ?", seededMembers);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public Long persistLoop(MemberDataSet data) {
+        return data.inTransaction(() -> {
+            Team team = em.find(Team.class, 1L);
+            for (int i = 0; i < ROWS; i++) {
+                em.persist(new Member("bulk" + i, i % 100, team));
+            }
+            return (long) ROWS;
+        });
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public Long bulkLoader(MemberDataSet data) {
+        return data.inTransaction(() -> memberBulkLoader.load(members(1L)));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public Long bulkLoaderJdbc(MemberDataSet data) {
+        return data.inTransaction(() -> memberBulkLoader.loadWithJdbc(members(1L)));
+    }
+
+    private static Stream<NewMember> members(Long teamId) {
+        return IntStream.range(0, ROWS).mapToObj(i -> new NewMember("bulk" + i, i % 100, teamId));
+    }
+}
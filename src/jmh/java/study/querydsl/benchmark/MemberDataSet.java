@@ -0,0 +1,117 @@
+package study.querydsl.benchmark;
+
+import jakarta.persistence.EntityManager;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.QuerydslApplication;
+import study.querydsl.repository.MemberRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+//벤치마크 공통 상태
+//인메모리 H2로 애플리케이션을 띄우고 members 건수만큼 회원을 JDBC 배치로 넣어둔다
+//건수는 -p members=10000 처럼 JMH 파라미터로 바꿀 수 있다
+@State(Scope.Benchmark)
+public class MemberDataSet {
+
+    public static final int TEAMS = 10;
+    private static final int SEED_BATCH_SIZE = 10_000;
+
+    @Param({"10000", "1000000"})
+    public int members;
+
+    public ConfigurableApplicationContext context;
+    public EntityManager em;
+    private TransactionTemplate readOnlyTx;
+    private TransactionTemplate tx;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        //커맨드라인 인자로 넘겨야 application.yml의 local 프로필(InitMember), tcp H2 설정보다 우선한다
+        List<String> args = new ArrayList<>(List.of("--spring.profiles.active=bench",
+                "--spring.datasource.url=jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1",
+                //R2DBC 풀도 같은 인메모리 DB를 보게 한다
+                "--member.r2dbc.url=r2dbc:h2:mem:///bench?options=DB_CLOSE_DELAY=-1",
+                "--spring.jpa.properties.hibernate.format_sql=false",
+                "--spring.jpa.properties.hibernate.use_sql_comments=false",
+                "--logging.level.org.hibernate.SQL=warn",
+                "--decorator.datasource.p6spy.enable-logging=false"));
+        args.addAll(extraArgs());
+        context = new SpringApplicationBuilder(QuerydslApplication.class)
+                .web(webApplicationType())
+                .run(args.toArray(String[]::new));
+
+        em = context.getBean(EntityManager.class);
+        PlatformTransactionManager transactionManager = context.getBean(PlatformTransactionManager.class);
+        tx = new TransactionTemplate(transactionManager);
+        readOnlyTx = new TransactionTemplate(transactionManager);
+        readOnlyTx.setReadOnly(true);
+
+        seed(context.getBean(JdbcTemplate.class));
+        //JDBC로 넣었으므로 팀 통계는 한 번에 다시 계산
+        context.getBean(MemberRepository.class).reconcileTeamStats();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    //웹 서버가 필요한 벤치마크(ReactiveSearchLoadBenchmark)는 하위 상태에서 바꾼다
+    protected WebApplicationType webApplicationType() {
+        return WebApplicationType.NONE;
+    }
+
+    protected List<String> extraArgs() {
+        return List.of();
+    }
+
+    public <T> T readOnly(Supplier<T> action) {
+        return readOnlyTx.execute(status -> action.get());
+    }
+
+    public <T> T inTransaction(Supplier<T> action) {
+        return tx.execute(status -> action.get());
+    }
+
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    //teamN 은 id N, memberN 은 id N / 나이 N % 100 / 팀 N % TEAMS + 1
+    private void seed(JdbcTemplate jdbcTemplate) {
+        List<Object[]> teams = new ArrayList<>();
+        for (long i = 1; i <= TEAMS; i++) {
+            teams.add(new Object[]{i, "team" + i});
+        }
+        jdbcTemplate.batchUpdate("insert into team (id, name) values (?, ?)", teams);
+
+        List<Object[]> batch = new ArrayList<>(SEED_BATCH_SIZE);
+        for (long i = 1; i <= members; i++) {
+            batch.add(new Object[]{i, "member" + i, (int) (i % 100), i % TEAMS + 1});
+            if (batch.size() == SEED_BATCH_SIZE) {
+                jdbcTemplate.batchUpdate("insert into member (member_id, username, age, team_id) values (?, ?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            jdbcTemplate.batchUpdate("insert into member (member_id, username, age, team_id) values (?, ?, ?, ?)", batch);
+        }
+
+        //직접 넣은 id와 엔티티 저장 시 발급되는 id가 겹치지 않도록 시퀀스를 넘겨둔다
+        jdbcTemplate.execute("alter sequence team_seq restart with " + (TEAMS + 1));
+        jdbcTemplate.execute("alter sequence member_seq restart with " + (members + 1));
+    }
+}
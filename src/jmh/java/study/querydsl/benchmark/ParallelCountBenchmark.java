@@ -0,0 +1,62 @@
+package study.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberCountCache;
+import study.querydsl.repository.MemberRepository;
+
+import java.util.concurrent.TimeUnit;
+
+//searchPageComplex(컨텐츠 -> 카운트 순서대로) vs searchPageParallel(카운트를 다른 스레드에서 동시에)
+//SampleTime 모드 결과의 p0.99 를 비교, 카운트 캐시는 매번 비운다
+//가상 스레드 비교는 JDK 21에서 --spring.threads.virtual.enabled=true 로 MemberDataSet을 띄워서 실행
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 5)
+@Threads(8)
+@Fork(1)
+public class ParallelCountBenchmark {
+
+    private MemberRepository memberRepository;
+    private MemberCountCache countCache;
+    private MemberSearchCondition condition;
+    private PageRequest pageRequest;
+
+    @Setup
+    public void setUp(MemberDataSet data) {
+        memberRepository = data.getBean(MemberRepository.class);
+        countCache = data.getBean(MemberCountCache.class);
+
+        condition = new MemberSearchCondition();
+        condition.setAgeGoe(20);
+        condition.setAgeLoe(60);
+        pageRequest = PageRequest.of(3, 20);
+    }
+
+    @Benchmark
+    public Page<MemberTeamDto> serial() {
+        countCache.invalidateAll();
+        return memberRepository.searchPageComplex(condition, pageRequest);
+    }
+
+    @Benchmark
+    public Page<MemberTeamDto> parallel() {
+        countCache.invalidateAll();
+        return memberRepository.searchPageParallel(condition, pageRequest);
+    }
+}
@@ -0,0 +1,106 @@
+package study.querydsl.benchmark;
+
+import com.querydsl.core.types.Projections;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import study.querydsl.dto.MemberDto;
+import study.querydsl.dto.QMemberDto;
+import study.querydsl.projection.CachedProjections;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static study.querydsl.entity.QMember.member;
+
+//QuerydslMiddleTest에서 사용한 DTO 프로젝션 방식별 처리량 비교
+//같은 쿼리에 프로젝션만 바꿔서 ROWS건을 매핑한다
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProjectionBenchmark {
+
+    private static final int ROWS = 5_000;
+
+    private JPAQueryFactory query;
+
+    @Setup
+    public void setUp(MemberDataSet data) {
+        query = new JPAQueryFactory(data.em);
+    }
+
+    @Benchmark
+    public List<MemberDto> bean(MemberDataSet data) {
+        return data.readOnly(() -> query
+                .select(Projections.bean(MemberDto.class, member.username, member.age))
+                .from(member)
+                .limit(ROWS)
+                .fetch());
+    }
+
+    @Benchmark
+    public List<MemberDto> fields(MemberDataSet data) {
+        return data.readOnly(() -> query
+                .select(Projections.fields(MemberDto.class, member.username, member.age))
+                .from(member)
+                .limit(ROWS)
+                .fetch());
+    }
+
+    @Benchmark
+    public List<MemberDto> constructor(MemberDataSet data) {
+        return data.readOnly(() -> query
+                .select(Projections.constructor(MemberDto.class, member.username, member.age))
+                .from(member)
+                .limit(ROWS)
+                .fetch());
+    }
+
+    @Benchmark
+    public List<MemberDto> queryProjection(MemberDataSet data) {
+        return data.readOnly(() -> query
+                .select(new QMemberDto(member.username, member.age))
+                .from(member)
+                .limit(ROWS)
+                .fetch());
+    }
+
+    //CachedProjections - queryProjection과 같은 수준이 목표
+    @Benchmark
+    public List<MemberDto> cachedBean(MemberDataSet data) {
+        return data.readOnly(() -> query
+                .select(CachedProjections.bean(MemberDto.class, member.username, member.age))
+                .from(member)
+                .limit(ROWS)
+                .fetch());
+    }
+
+    @Benchmark
+    public List<MemberDto> cachedFields(MemberDataSet data) {
+        return data.readOnly(() -> query
+                .select(CachedProjections.fields(MemberDto.class, member.username, member.age))
+                .from(member)
+                .limit(ROWS)
+                .fetch());
+    }
+
+    @Benchmark
+    public List<MemberDto> cachedConstructor(MemberDataSet data) {
+        return data.readOnly(() -> query
+                .select(CachedProjections.constructor(MemberDto.class, member.username, member.age))
+                .from(member)
+                .limit(ROWS)
+                .fetch());
+    }
+}
@@ -0,0 +1,98 @@
+package study.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+//부하 테스트: /v1/members(MVC + JPA, 요청 스레드가 DB를 기다림) vs /v5/members(Flux + R2DBC)
+//클라이언트 64 스레드가 톰캣 요청 스레드 16개(WebMemberDataSet)로 동시에 요청
+//처리량은 JMH 결과, 스레드 사용량은 이터레이션마다 출력하는 최대 스레드 수 / 스레드 풀별 개수로 비교
+//r2dbc-h2 드라이버는 내부가 동기라 /v5의 DB 작업은 boundedElastic 스레드에서 돈다 - 톰캣 스레드가 비는 대신 그쪽 스레드가 늘어난다
+//./gradlew jmh -PjmhArgs="ReactiveSearchLoadBenchmark -p members=10000"
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 5)
+@Threads(64)
+@Fork(1)
+public class ReactiveSearchLoadBenchmark {
+
+    private static final String QUERY = "?teamName=team1&ageGoe=10&ageLoe=19";
+
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private HttpClient client;
+    private HttpRequest blocking;
+    private HttpRequest reactive;
+
+    @Setup
+    public void setUp(WebMemberDataSet data) {
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        blocking = request(data.uri("/v1/members" + QUERY));
+        reactive = request(data.uri("/v5/members" + QUERY));
+    }
+
+    @Setup(Level.Iteration)
+    public void resetPeak() {
+        threads.resetPeakThreadCount();
+    }
+
+    @TearDown(Level.Iteration)
+    public void printThreadUsage() {
+        ThreadInfo[] infos = threads.getThreadInfo(threads.getAllThreadIds());
+        long tomcat = countThreads(infos, "-exec-");
+        long elastic = countThreads(infos, "boundedElastic-");
+        System.out.printf("%n  peak threads=%d, live threads=%d (tomcat=%d, boundedElastic=%d)%n",
+                threads.getPeakThreadCount(), threads.getThreadCount(), tomcat, elastic);
+    }
+
+    @Benchmark
+    public int blocking() throws IOException, InterruptedException {
+        return send(blocking);
+    }
+
+    @Benchmark
+    public int reactive() throws IOException, InterruptedException {
+        return send(reactive);
+    }
+
+    //응답 본문을 끝까지 읽어야 서버가 마지막 행까지 보낸다
+    private int send(HttpRequest request) throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(request.uri() + " -> " + response.statusCode());
+        }
+        return response.body().length;
+    }
+
+    private static HttpRequest request(URI uri) {
+        return HttpRequest.newBuilder(uri).GET().build();
+    }
+
+    private static long countThreads(ThreadInfo[] infos, String namePrefix) {
+        return Arrays.stream(infos)
+                .filter(info -> info != null && info.getThreadName().contains(namePrefix))
+                .count();
+    }
+}
@@ -0,0 +1,83 @@
+package study.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberCountCache;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.repository.MemberRepository;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//리포지토리 조회 경로별 처리량 비교
+//search vs searchByBuilder (동적 쿼리 작성 방식), searchPageSimple vs searchPageComplex (카운트 쿼리 분리)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RepositorySearchBenchmark {
+
+    private MemberJpaRepository memberJpaRepository;
+    private MemberRepository memberRepository;
+    private MemberCountCache countCache;
+
+    //팀 하나 + 나이 범위, 회원 수에 비례해서 결과가 커진다(전체의 약 1%)
+    private MemberSearchCondition condition;
+    private PageRequest pageRequest;
+
+    @Setup
+    public void setUp(MemberDataSet data) {
+        memberJpaRepository = data.getBean(MemberJpaRepository.class);
+        memberRepository = data.getBean(MemberRepository.class);
+        countCache = data.getBean(MemberCountCache.class);
+
+        condition = new MemberSearchCondition();
+        condition.setTeamName("team3");
+        condition.setAgeGoe(20);
+        condition.setAgeLoe(29);
+
+        pageRequest = PageRequest.of(5, 20);
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> search(MemberDataSet data) {
+        return data.readOnly(() -> memberJpaRepository.search(condition));
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> searchByBuilder(MemberDataSet data) {
+        return data.readOnly(() -> memberJpaRepository.searchByBuilder(condition));
+    }
+
+    @Benchmark
+    public Page<MemberTeamDto> searchPageSimple(MemberDataSet data) {
+        return data.readOnly(() -> memberRepository.searchPageSimple(condition, pageRequest));
+    }
+
+    //카운트 캐시를 비우고 실행 - 카운트 쿼리를 매번 실제로 날리는 경우
+    @Benchmark
+    public Page<MemberTeamDto> searchPageComplex(MemberDataSet data) {
+        countCache.invalidateAll();
+        return data.readOnly(() -> memberRepository.searchPageComplex(condition, pageRequest));
+    }
+
+    //카운트 캐시가 살아있는 경우(같은 조건으로 페이지만 넘기는 경우)
+    @Benchmark
+    public Page<MemberTeamDto> searchPageComplexCachedCount(MemberDataSet data) {
+        return data.readOnly(() -> memberRepository.searchPageComplex(condition, pageRequest));
+    }
+}
@@ -0,0 +1,56 @@
+package study.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.repository.MemberRepository;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//쿼리 생성 비용 비교: 매번 Querydsl로 만드는 search vs 조건 모양별로 캐시된 JPQL을 쓰는 search
+//결과가 1건인 조건이라 DB 시간보다 쿼리 생성/직렬화 비용이 드러난다
+//할당량은 -prof gc 로 확인 (./gradlew jmh -PjmhArgs="SearchPlanCacheBenchmark -prof gc -p members=10000")
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchPlanCacheBenchmark {
+
+    private MemberJpaRepository memberJpaRepository;
+    private MemberRepository memberRepository;
+    private MemberSearchCondition condition;
+
+    @Setup
+    public void setUp(MemberDataSet data) {
+        memberJpaRepository = data.getBean(MemberJpaRepository.class);
+        memberRepository = data.getBean(MemberRepository.class);
+
+        condition = new MemberSearchCondition();
+        condition.setUserName("member77");
+        condition.setAgeGoe(10);
+        condition.setAgeLoe(90);
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> querydslEveryRequest(MemberDataSet data) {
+        return data.readOnly(() -> memberJpaRepository.search(condition));
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> compiledPlan(MemberDataSet data) {
+        return data.readOnly(() -> memberRepository.search(condition));
+    }
+}
@@ -0,0 +1,56 @@
+package study.querydsl.benchmark;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import study.querydsl.dto.TeamStatsDto;
+import study.querydsl.repository.MemberRepository;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+//팀 리포트 - group by로 회원 전체 집계(O(회원)) vs team_stats 조회(O(팀))
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TeamStatsBenchmark {
+
+    private JPAQueryFactory query;
+    private MemberRepository memberRepository;
+
+    @Setup
+    public void setUp(MemberDataSet data) {
+        query = new JPAQueryFactory(data.em);
+        memberRepository = data.getBean(MemberRepository.class);
+    }
+
+    @Benchmark
+    public List<Tuple> groupBy(MemberDataSet data) {
+        return data.readOnly(() -> query
+                .select(team.name, member.count(), member.age.avg(), member.age.max())
+                .from(member)
+                .join(member.team, team)
+                .groupBy(team.name)
+                .fetch());
+    }
+
+    @Benchmark
+    public List<TeamStatsDto> teamStats() {
+        return memberRepository.findTeamStats();
+    }
+}
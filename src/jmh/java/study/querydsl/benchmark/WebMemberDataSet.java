@@ -0,0 +1,33 @@
+package study.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.boot.WebApplicationType;
+
+import java.net.URI;
+import java.util.List;
+
+//MemberDataSet + 내장 톰캣(임의 포트)
+//요청 스레드를 TOMCAT_THREADS개로 줄여서 동시 요청이 스레드 수보다 많은 상황을 만든다
+@State(Scope.Benchmark)
+public class WebMemberDataSet extends MemberDataSet {
+
+    public static final int TOMCAT_THREADS = 16;
+
+    @Override
+    protected WebApplicationType webApplicationType() {
+        return WebApplicationType.SERVLET;
+    }
+
+    @Override
+    protected List<String> extraArgs() {
+        return List.of("--server.port=0",
+                "--server.tomcat.threads.max=" + TOMCAT_THREADS,
+                "--server.tomcat.threads.min-spare=" + TOMCAT_THREADS,
+                "--logging.level.org.apache.catalina=warn");
+    }
+
+    public URI uri(String pathAndQuery) {
+        return URI.create("http://localhost:" + context.getEnvironment().getProperty("local.server.port") + pathAndQuery);
+    }
+}
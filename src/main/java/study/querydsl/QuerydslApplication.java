@@ -2,8 +2,12 @@ package study.querydsl;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcTransactionManagerAutoConfiguration;
 
-@SpringBootApplication
+//R2DBC 커넥션은 ReactiveDataSourceConfig에서 직접 만든다
+//자동 설정을 두면 임베디드 ConnectionFactory와 두번째 TransactionManager가 생겨서 @Transactional이 어느 쪽인지 못 고른다
+@SpringBootApplication(exclude = {R2dbcAutoConfiguration.class, R2dbcTransactionManagerAutoConfiguration.class})
 public class QuerydslApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,52 @@
+package study.querydsl.config;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.util.StringUtils;
+
+import java.time.Duration;
+
+//member.r2dbc.url 이 있을 때만 리액티브 검색(/v5, MemberReactiveRepository)을 켠다
+//JPA/JDBC 풀(spring.datasource)과 별개의 R2DBC 풀, 계정은 따로 주지 않으면 spring.datasource 것을 쓴다
+//트랜잭션 매니저는 등록하지 않는다 - 조회 전용이고, @Transactional은 계속 JPA 트랜잭션 매니저 하나만 본다
+@Configuration
+@ConditionalOnProperty(prefix = "member.r2dbc", name = "url")
+public class ReactiveDataSourceConfig {
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionPool r2dbcConnectionPool(@Value("${member.r2dbc.url}") String url,
+                                              @Value("${member.r2dbc.username:${spring.datasource.username:}}") String username,
+                                              @Value("${member.r2dbc.password:${spring.datasource.password:}}") String password,
+                                              @Value("${member.r2dbc.max-size:10}") int maxSize,
+                                              @Value("${member.r2dbc.max-acquire-time:5s}") Duration maxAcquireTime) {
+        ConnectionFactoryOptions.Builder options = ConnectionFactoryOptions.parse(url).mutate();
+        if (StringUtils.hasText(username)) {
+            options.option(ConnectionFactoryOptions.USER, username);
+        }
+        if (StringUtils.hasText(password)) {
+            options.option(ConnectionFactoryOptions.PASSWORD, password);
+        }
+
+        ConnectionPoolConfiguration configuration = ConnectionPoolConfiguration
+                .builder(ConnectionFactories.get(options.build()))
+                .name("r2dbc")
+                .initialSize(0)
+                .maxSize(maxSize)
+                //풀이 모자라면 구독은 스레드를 잡지 않고 대기하다가 이 시간이 지나면 에러
+                .maxAcquireTime(maxAcquireTime)
+                .build();
+        return new ConnectionPool(configuration);
+    }
+
+    @Bean
+    public DatabaseClient databaseClient(ConnectionPool r2dbcConnectionPool) {
+        return DatabaseClient.create(r2dbcConnectionPool);
+    }
+}
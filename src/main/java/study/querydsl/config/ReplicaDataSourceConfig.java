@@ -0,0 +1,78 @@
+package study.querydsl.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+//member.datasource.replica.url 이 있을 때만 읽기/쓰기 분리
+//spring.datasource = 프라이머리, member.datasource.replica = 레플리카
+//DataSource 빈은 라우팅 프록시 하나만 등록한다(p6spy가 DataSource 빈마다 감싸므로 원본 풀까지 빈이면 SQL이 두 번 잡힌다)
+@Configuration
+@ConditionalOnProperty(prefix = "member.datasource.replica", name = "url")
+public class ReplicaDataSourceConfig {
+
+    @Bean(destroyMethod = "close")
+    public ReplicaPools replicaPools(DataSourceProperties properties,
+                                     @Value("${member.datasource.replica.url}") String replicaUrl,
+                                     @Value("${member.datasource.replica.username:${spring.datasource.username:}}") String replicaUsername,
+                                     @Value("${member.datasource.replica.password:${spring.datasource.password:}}") String replicaPassword) {
+        HikariDataSource primary = properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        primary.setPoolName("primary");
+
+        HikariDataSource replica = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .driverClassName(properties.determineDriverClassName())
+                .url(replicaUrl)
+                .username(replicaUsername)
+                .password(replicaPassword)
+                .build();
+        replica.setPoolName("replica");
+        replica.setReadOnly(true);
+        return new ReplicaPools(primary, replica);
+    }
+
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(ReplicaPools pools,
+                                               @Value("${member.datasource.replica.lag-query:}") String lagQuery,
+                                               @Value("${member.datasource.replica.max-lag:1s}") Duration maxLag,
+                                               @Value("${member.datasource.replica.check-interval:1s}") Duration checkInterval) {
+        return new ReplicaLagMonitor(pools.replica(), lagQuery, maxLag, checkInterval);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaPools pools, ReplicaLagMonitor lagMonitor) {
+        return new LazyConnectionDataSourceProxy(
+                new ReplicaRoutingDataSource(pools.primary(), pools.replica(), lagMonitor));
+    }
+
+    //OSIV로 세션이 요청 끝까지 살아있어도 커넥션은 트랜잭션마다 반납
+    //(기본값 DELAYED_ACQUISITION_AND_HOLD면 처음 잡은 레플리카 커넥션으로 뒤의 쓰기 트랜잭션까지 실행된다)
+    @Bean
+    public HibernatePropertiesCustomizer releaseConnectionAfterTransaction() {
+        return properties -> properties.put(AvailableSettings.CONNECTION_HANDLING,
+                PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+    }
+
+    public record ReplicaPools(HikariDataSource primary, HikariDataSource replica) implements AutoCloseable {
+        @Override
+        public void close() {
+            replica.close();
+            primary.close();
+        }
+    }
+}
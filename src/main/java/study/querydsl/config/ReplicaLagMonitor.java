@@ -0,0 +1,77 @@
+package study.querydsl.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+//레플리카로 읽어도 되는지 판단
+//- 레플리카에 연결이 안되면 사용 불가
+//- lagQuery(지연 ms를 돌려주는 쿼리)가 있으면 maxLag를 넘을 때 사용 불가
+//매 커넥션마다 확인하지 않고 checkInterval마다 한 스레드만 확인하고 나머지는 마지막 결과를 쓴다
+@Slf4j
+public class ReplicaLagMonitor {
+
+    private final DataSource replica;
+    private final String lagQuery;
+    private final long maxLagMillis;
+    private final long checkIntervalNanos;
+
+    private final AtomicBoolean checking = new AtomicBoolean();
+    private volatile long nextCheckNanos = System.nanoTime();
+    private volatile boolean usable = true;
+    private volatile long lastLagMillis = -1;
+
+    public ReplicaLagMonitor(DataSource replica, String lagQuery, Duration maxLag, Duration checkInterval) {
+        this.replica = replica;
+        this.lagQuery = StringUtils.hasText(lagQuery) ? lagQuery : null;
+        this.maxLagMillis = maxLag.toMillis();
+        this.checkIntervalNanos = checkInterval.toNanos();
+    }
+
+    public boolean isReplicaUsable() {
+        long now = System.nanoTime();
+        if (now - nextCheckNanos >= 0 && checking.compareAndSet(false, true)) {
+            try {
+                boolean result = probe();
+                if (result != usable) {
+                    log.warn("replica {} (lag={}ms, maxLag={}ms)", result ? "back in service" : "out of service",
+                            lastLagMillis, maxLagMillis);
+                }
+                usable = result;
+                nextCheckNanos = now + checkIntervalNanos;
+            } finally {
+                checking.set(false);
+            }
+        }
+        return usable;
+    }
+
+    //마지막으로 측정한 지연(ms), lagQuery가 없거나 측정 실패면 -1
+    public long getLastLagMillis() {
+        return lastLagMillis;
+    }
+
+    private boolean probe() {
+        try (Connection connection = replica.getConnection()) {
+            if (lagQuery == null) {
+                return connection.isValid(1);
+            }
+            try (Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery(lagQuery)) {
+                lastLagMillis = rs.next() ? rs.getLong(1) : -1;
+                return lastLagMillis >= 0 && lastLagMillis <= maxLagMillis;
+            }
+        } catch (SQLException e) {
+            lastLagMillis = -1;
+            log.debug("replica probe failed", e);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package study.querydsl.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+//@Transactional(readOnly = true) 안에서 얻는 커넥션은 레플리카, 나머지(쓰기, 트랜잭션 밖)는 프라이머리
+//트랜잭션 시작 시점에는 아직 readOnly 플래그가 안 잡혀 있으므로 반드시 LazyConnectionDataSourceProxy로 감싸서
+//첫 SQL 실행 때 커넥션을 고르게 해야 한다
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    public enum Target {PRIMARY, REPLICA}
+
+    private final ReplicaLagMonitor lagMonitor;
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica, ReplicaLagMonitor lagMonitor) {
+        this.lagMonitor = lagMonitor;
+        setTargetDataSources(Map.<Object, Object>of(Target.PRIMARY, primary, Target.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Target determineCurrentLookupKey() {
+        //레플리카가 죽었거나 많이 밀려있으면 읽기도 프라이머리로
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly() && lagMonitor.isReplicaUsable()) {
+            return Target.REPLICA;
+        }
+        return Target.PRIMARY;
+    }
+}
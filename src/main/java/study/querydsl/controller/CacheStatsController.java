@@ -0,0 +1,82 @@
+package study.querydsl.controller;
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import study.querydsl.repository.MemberCountCache;
+import study.querydsl.repository.MemberPagePrefetcher;
+import study.querydsl.repository.MemberReadModel;
+import study.querydsl.repository.MemberSearchPlanCache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+//캐시 크기를 정할 수 있도록 히트율을 보여준다
+@RestController
+@RequiredArgsConstructor
+public class CacheStatsController {
+
+    private final EntityManagerFactory emf;
+    private final MemberSearchPlanCache planCache;
+    private final MemberCountCache countCache;
+    private final MemberPagePrefetcher pagePrefetcher;
+    private final MemberReadModel readModel;
+
+    @GetMapping("/cache/stats")
+    public Map<String, Object> cacheStats() {
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+
+        Map<String, Object> regions = new LinkedHashMap<>();
+        for (String regionName : statistics.getSecondLevelCacheRegionNames()) {
+            CacheRegionStatistics region = statistics.getDomainDataRegionStatistics(regionName);
+            regions.put(regionName, Map.of(
+                    "hit", region.getHitCount(),
+                    "miss", region.getMissCount(),
+                    "put", region.getPutCount(),
+                    "hitRatio", ratio(region.getHitCount(), region.getMissCount()),
+                    "elements", region.getElementCountInMemory()));
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("secondLevel", Map.of(
+                "hit", statistics.getSecondLevelCacheHitCount(),
+                "miss", statistics.getSecondLevelCacheMissCount(),
+                "put", statistics.getSecondLevelCachePutCount(),
+                "hitRatio", ratio(statistics.getSecondLevelCacheHitCount(), statistics.getSecondLevelCacheMissCount())));
+        result.put("regions", regions);
+        result.put("queryCache", Map.of(
+                "hit", statistics.getQueryCacheHitCount(),
+                "miss", statistics.getQueryCacheMissCount(),
+                "put", statistics.getQueryCachePutCount(),
+                "hitRatio", ratio(statistics.getQueryCacheHitCount(), statistics.getQueryCacheMissCount())));
+        result.put("searchPlanCache", Map.of(
+                "hit", planCache.getHitCount(),
+                "miss", planCache.getMissCount(),
+                "hitRatio", ratio(planCache.getHitCount(), planCache.getMissCount())));
+        result.put("countCache", Map.of("size", countCache.size()));
+        result.put("pagePrefetch", Map.of(
+                "hit", pagePrefetcher.getHitCount(),
+                "miss", pagePrefetcher.getMissCount(),
+                "hitRatio", ratio(pagePrefetcher.getHitCount(), pagePrefetcher.getMissCount()),
+                "prefetched", pagePrefetcher.getPrefetchCount(),
+                "dropped", pagePrefetcher.getDroppedCount(),
+                "size", pagePrefetcher.size()));
+        result.put("readModel", Map.of("enabled", readModel.isEnabled(), "rows", readModel.size()));
+        return result;
+    }
+
+    //search 읽기 모델과 DB 비교(전체 member를 읽으므로 운영 중에는 가끔만)
+    @GetMapping("/cache/read-model/check")
+    public MemberReadModel.Consistency checkReadModel() {
+        return readModel.check();
+    }
+
+    private static double ratio(long hit, long miss) {
+        long total = hit + miss;
+        return total == 0 ? 0.0 : (double) hit / total;
+    }
+}
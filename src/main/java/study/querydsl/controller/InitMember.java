@@ -7,8 +7,11 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
-import study.querydsl.entity.Member;
 import study.querydsl.entity.Team;
+import study.querydsl.service.MemberBulkLoader;
+import study.querydsl.service.MemberBulkLoader.NewMember;
+
+import java.util.stream.IntStream;
 
 @Profile("local")
 @Component
@@ -24,10 +27,13 @@ public class InitMember {
     }
 
     @Component
+    @RequiredArgsConstructor
     static class InitMemberService{
         @PersistenceContext
         private EntityManager em;
 
+        private final MemberBulkLoader memberBulkLoader;
+
         @Transactional
         public void init(){
             Team teamA = new Team("teamA");
@@ -35,10 +41,8 @@ public class InitMember {
             em.persist(teamA);
             em.persist(teamB);
 
-            for (int i = 0; i < 100; i++) {
-                Team selectedTeam = i % 2 == 0 ? teamA : teamB;
-                em.persist(new Member("member" + i, i, selectedTeam));
-            }
+            memberBulkLoader.load(IntStream.range(0, 100)
+                    .mapToObj(i -> new NewMember("member" + i, i, (i % 2 == 0 ? teamA : teamB).getId())));
         }
     }
 }
@@ -1,36 +1,118 @@
 package study.querydsl.controller;
 
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import study.querydsl.dto.CursorPage;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.event.TableVersion;
+import study.querydsl.repository.InvalidCursorException;
 import study.querydsl.repository.MemberJpaRepository;
 import study.querydsl.repository.MemberRepository;
+import study.querydsl.service.MemberExportService;
+import study.querydsl.service.MemberExportService.ExportFormat;
+import study.querydsl.sql.QueryBudget;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 @RestController
 @RequiredArgsConstructor
 public class MemberController {
 
+
     private final MemberJpaRepository memberJpaRepository;
     private final MemberRepository memberRepository;
+    private final MemberExportService memberExportService;
+    private final TableVersion tableVersion;
 
+    @QueryBudget(max = 1)
     @GetMapping("/v1/members")
     public List<MemberTeamDto> searchMemberV1(MemberSearchCondition condition){
         return memberJpaRepository.search(condition);
     }
 
+    //v1과 같은 검색을 List로 모으지 않고 NDJSON(기본) 또는 CSV로 바로 흘려보낸다
+    @QueryBudget(max = 1)
+    @GetMapping("/v1/members/export")
+    public void exportMemberV1(MemberSearchCondition condition,
+                               @RequestParam(defaultValue = "NDJSON") ExportFormat format,
+                               HttpServletResponse response) throws IOException {
+        response.setContentType(format.getContentType());
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        memberExportService.export(condition, format, response.getWriter());
+    }
+
+    //fetchResults = 컨텐츠 + 카운트
+    //v2, v3는 If-None-Match / If-Modified-Since가 맞으면 쿼리 없이 304 (notModified)
+    @QueryBudget(max = 2)
     @GetMapping("/v2/members")
-    public Page<MemberTeamDto> searchMemberV2(MemberSearchCondition condition, Pageable pageable){
+    public Page<MemberTeamDto> searchMemberV2(MemberSearchCondition condition, Pageable pageable,
+                                              WebRequest request, HttpServletResponse response){
+        if (notModified(request, response, "v2", condition.normalized(), pageable)) {
+            return null;
+        }
         return memberRepository.searchPageSimple(condition, pageable);
     }
 
+    //컨텐츠 + 카운트, 카운트가 생략되거나 캐시되면 1번
+    @QueryBudget(max = 2)
     @GetMapping("/v3/members")
-    public Page<MemberTeamDto> searchMemberV3(MemberSearchCondition condition, Pageable pageable){
+    public Page<MemberTeamDto> searchMemberV3(MemberSearchCondition condition, Pageable pageable,
+                                              @RequestParam(defaultValue = "false") boolean approximate,
+                                              @RequestParam(defaultValue = "false") boolean parallel,
+                                              WebRequest request, HttpServletResponse response){
+        //approximate는 총 건수가 추정값이라 다른 결과로 본다
+        if (notModified(request, response, "v3", condition.normalized(), pageable, approximate)) {
+            return null;
+        }
+        if (approximate) {
+            return memberRepository.searchPageApproximate(condition, pageable);
+        }
+        if (parallel) {
+            return memberRepository.searchPageParallel(condition, pageable);
+        }
         return memberRepository.searchPageComplex(condition, pageable);
     }
+
+    //키셋 페이징, 다음 페이지는 응답의 nextCursor를 cursor 파라미터로 넘긴다
+    @QueryBudget(max = 1)
+    @GetMapping("/v4/members")
+    public CursorPage<MemberTeamDto> searchMemberV4(MemberSearchCondition condition,
+                                                   @RequestParam(required = false) String cursor,
+                                                   @RequestParam(defaultValue = "20") int size){
+        return memberRepository.searchAfter(condition, cursor, Math.min(Math.max(size, 1), MemberRepository.MAX_CURSOR_PAGE_SIZE));
+    }
+
+    //클라이언트가 커서를 만들어 보냈거나 잘린 경우 = 요청 오류
+    @ExceptionHandler(InvalidCursorException.class)
+    public ProblemDetail invalidCursor(InvalidCursorException e) {
+        return ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, e.getMessage());
+    }
+
+    //member/team 테이블 버전(TableVersion)으로 ETag, Last-Modified를 만들고 요청의 조건부 헤더와 비교
+    //맞으면 checkNotModified가 304를 설정하고 true, 핸들러는 바로 끝낸다
+    //no-cache = 저장은 하되 매번 재검증, Last-Modified만 보고 브라우저가 임의로 캐시 유효 기간을 잡지 않도록
+    private boolean notModified(WebRequest request, HttpServletResponse response, Object... key) {
+        long lastModified = tableVersion.getLastModified();
+        String etag = tableVersion.etag(tableVersion.getVersion(), key);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+        //마지막 쓰기와 같은 초 안이면 Last-Modified를 내보내지도, If-Modified-Since로 비교하지도 않는다
+        //(이 초 안에 다음 쓰기가 있어도 Last-Modified가 같아서 304가 잘못 나갈 수 있으므로 ETag만 쓴다)
+        if (tableVersion.isModifiedThisSecond()) {
+            return request.checkNotModified(etag);
+        }
+        return request.checkNotModified(etag, lastModified);
+    }
 }
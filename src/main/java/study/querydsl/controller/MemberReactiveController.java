@@ -0,0 +1,27 @@
+package study.querydsl.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberReactiveRepository;
+
+//v1과 같은 검색을 R2DBC Flux로 (MemberReactiveRepository)
+//Spring MVC가 Flux를 비동기 요청으로 처리하므로 DB를 기다리는 동안 톰캣 요청 스레드를 반납한다
+//NDJSON으로 한 줄씩 쓰고, 응답 쓰기가 끝나야 다음 행을 요청하므로 느린 클라이언트면 DB 읽기도 같이 느려진다
+@RestController
+@ConditionalOnProperty(prefix = "member.r2dbc", name = "url")
+@RequiredArgsConstructor
+public class MemberReactiveController {
+
+    private final MemberReactiveRepository memberReactiveRepository;
+
+    @GetMapping(value = "/v5/members", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<MemberTeamDto> searchMemberV5(MemberSearchCondition condition) {
+        return memberReactiveRepository.search(condition);
+    }
+}
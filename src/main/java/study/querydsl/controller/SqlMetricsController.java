@@ -0,0 +1,21 @@
+package study.querydsl.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import study.querydsl.sql.SqlMetrics;
+
+import java.util.Map;
+
+//SQL 실행 지표 조회 (문장별 지연시간, 요청/조건 모양별 문장 수, 느린 쿼리)
+@RestController
+@RequiredArgsConstructor
+public class SqlMetricsController {
+
+    private final SqlMetrics sqlMetrics;
+
+    @GetMapping("/metrics/sql")
+    public Map<String, Object> sqlMetrics() {
+        return sqlMetrics.snapshot();
+    }
+}
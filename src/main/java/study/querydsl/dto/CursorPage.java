@@ -0,0 +1,21 @@
+package study.querydsl.dto;
+
+import lombok.Getter;
+
+import java.util.List;
+
+//커서(키셋) 페이징 결과
+//nextCursor는 클라이언트가 해석하지 않고 그대로 다음 요청에 넘겨주는 값(opaque token)
+@Getter
+public class CursorPage<T> {
+
+    private final List<T> content;
+    private final String nextCursor;
+    private final boolean hasNext;
+
+    public CursorPage(List<T> content, String nextCursor) {
+        this.content = content;
+        this.nextCursor = nextCursor;
+        this.hasNext = nextCursor != null;
+    }
+}
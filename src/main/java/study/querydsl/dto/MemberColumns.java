@@ -0,0 +1,189 @@
+package study.querydsl.dto;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+//회원 검색 결과를 컬럼 단위로 담는 객체(분석/리포트용)
+//List<Tuple>/List<MemberTeamDto>는 row마다 객체 + 박싱된 Integer/Long을 만들지만
+//여기서는 id, age는 primitive 배열, username/teamName은 사전(dictionary) + int 코드 배열로 저장한다
+//같은 팀명 문자열은 사전에 한 번만 들어가므로 row가 많을수록 힙 사용량 차이가 커진다
+public class MemberColumns {
+
+    //팀이 없는 회원의 teamId, 문자열 컬럼이 null인 경우의 코드
+    public static final long NO_ID = -1L;
+    public static final int NULL_CODE = -1;
+
+    private final int size;
+    private final long[] memberIds;
+    private final int[] ages;
+    private final long[] teamIds;
+    private final int[] usernameCodes;
+    private final String[] usernameDictionary;
+    private final int[] teamNameCodes;
+    private final String[] teamNameDictionary;
+
+    private MemberColumns(Builder builder) {
+        this.size = builder.size;
+        this.memberIds = Arrays.copyOf(builder.memberIds, size);
+        this.ages = Arrays.copyOf(builder.ages, size);
+        this.teamIds = Arrays.copyOf(builder.teamIds, size);
+        this.usernameCodes = Arrays.copyOf(builder.usernameCodes, size);
+        this.usernameDictionary = builder.usernames.dictionary();
+        this.teamNameCodes = Arrays.copyOf(builder.teamNameCodes, size);
+        this.teamNameDictionary = builder.teamNames.dictionary();
+    }
+
+    public static Builder builder(int expectedSize) {
+        return new Builder(expectedSize);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long memberId(int row) {
+        return memberIds[row];
+    }
+
+    public int age(int row) {
+        return ages[row];
+    }
+
+    public long teamId(int row) {
+        return teamIds[row];
+    }
+
+    public String username(int row) {
+        return decode(usernameDictionary, usernameCodes[row]);
+    }
+
+    public String teamName(int row) {
+        return decode(teamNameDictionary, teamNameCodes[row]);
+    }
+
+    //아래 배열은 복사하지 않고 그대로 넘긴다(수정 금지)
+    public long[] memberIds() {
+        return memberIds;
+    }
+
+    public int[] ages() {
+        return ages;
+    }
+
+    public long[] teamIds() {
+        return teamIds;
+    }
+
+    public int[] usernameCodes() {
+        return usernameCodes;
+    }
+
+    public String[] usernameDictionary() {
+        return usernameDictionary;
+    }
+
+    public int[] teamNameCodes() {
+        return teamNameCodes;
+    }
+
+    public String[] teamNameDictionary() {
+        return teamNameDictionary;
+    }
+
+    //QuerydslBasicTest.group(팀 이름, 평균 나이)과 같은 집계를 Tuple 없이 코드 배열로 계산
+    //팀이 없는 회원은 null 키로 모인다
+    public Map<String, Double> averageAgeByTeamName() {
+        long[] sums = new long[teamNameDictionary.length + 1];
+        int[] counts = new int[teamNameDictionary.length + 1];
+        for (int i = 0; i < size; i++) {
+            int slot = teamNameCodes[i] + 1;   //NULL_CODE(-1) -> 0
+            sums[slot] += ages[i];
+            counts[slot]++;
+        }
+
+        Map<String, Double> result = new LinkedHashMap<>();
+        for (int slot = 0; slot < sums.length; slot++) {
+            if (counts[slot] > 0) {
+                result.put(slot == 0 ? null : teamNameDictionary[slot - 1], (double) sums[slot] / counts[slot]);
+            }
+        }
+        return result;
+    }
+
+    private static String decode(String[] dictionary, int code) {
+        return code == NULL_CODE ? null : dictionary[code];
+    }
+
+    public static class Builder {
+
+        private int size;
+        private long[] memberIds;
+        private int[] ages;
+        private long[] teamIds;
+        private int[] usernameCodes;
+        private int[] teamNameCodes;
+        private final Dictionary usernames = new Dictionary();
+        private final Dictionary teamNames = new Dictionary();
+
+        private Builder(int expectedSize) {
+            int capacity = Math.max(expectedSize, 16);
+            memberIds = new long[capacity];
+            ages = new int[capacity];
+            teamIds = new long[capacity];
+            usernameCodes = new int[capacity];
+            teamNameCodes = new int[capacity];
+        }
+
+        public Builder add(long memberId, String username, int age, Long teamId, String teamName) {
+            if (size == memberIds.length) {
+                int capacity = size * 2;
+                memberIds = Arrays.copyOf(memberIds, capacity);
+                ages = Arrays.copyOf(ages, capacity);
+                teamIds = Arrays.copyOf(teamIds, capacity);
+                usernameCodes = Arrays.copyOf(usernameCodes, capacity);
+                teamNameCodes = Arrays.copyOf(teamNameCodes, capacity);
+            }
+            memberIds[size] = memberId;
+            ages[size] = age;
+            teamIds[size] = teamId != null ? teamId : NO_ID;
+            usernameCodes[size] = usernames.encode(username);
+            teamNameCodes[size] = teamNames.encode(teamName);
+            size++;
+            return this;
+        }
+
+        public MemberColumns build() {
+            return new MemberColumns(this);
+        }
+    }
+
+    //문자열 -> 코드(등장 순서), 같은 문자열은 같은 코드와 같은 인스턴스 하나만 남는다
+    private static class Dictionary {
+
+        private final Map<String, Integer> codes = new HashMap<>();
+        private String[] values = new String[16];
+
+        int encode(String value) {
+            if (value == null) {
+                return NULL_CODE;
+            }
+            Integer code = codes.get(value);
+            if (code != null) {
+                return code;
+            }
+            int newCode = codes.size();
+            if (newCode == values.length) {
+                values = Arrays.copyOf(values, newCode * 2);
+            }
+            values[newCode] = value;
+            codes.put(value, newCode);
+            return newCode;
+        }
+
+        String[] dictionary() {
+            return Arrays.copyOf(values, codes.size());
+        }
+    }
+}
@@ -2,13 +2,61 @@ package study.querydsl.dto;
 
 import lombok.Data;
 
+import static org.springframework.util.StringUtils.hasText;
+
 @Data
 public class MemberSearchCondition {
     //회원명, 팀명, 나이(ageGoe, ageLoe)
+    //회원명 접두어/부분 문자열(usernamePrefix, usernameContains)은 회원명 인덱스(MemberUsernameIndex)로 찾는다
 
     private String userName;
+    private String usernamePrefix;
+    private String usernameContains;
     private String teamName;
     private Integer ageGoe;
     private Integer ageLoe;
 
+    //조건 모양 = 어떤 조건이 들어왔는지(값은 무시), 조건 6개라 64가지
+    public static final int USERNAME = 1;
+    public static final int TEAM_NAME = 1 << 1;
+    public static final int AGE_GOE = 1 << 2;
+    public static final int AGE_LOE = 1 << 3;
+    public static final int USERNAME_PREFIX = 1 << 4;
+    public static final int USERNAME_CONTAINS = 1 << 5;
+    public static final int SHAPE_COUNT = 1 << 6;
+
+    public int shape() {
+        int shape = 0;
+        if (hasText(userName)) {
+            shape |= USERNAME;
+        }
+        if (hasText(teamName)) {
+            shape |= TEAM_NAME;
+        }
+        if (ageGoe != null) {
+            shape |= AGE_GOE;
+        }
+        if (ageLoe != null) {
+            shape |= AGE_LOE;
+        }
+        if (hasText(usernamePrefix)) {
+            shape |= USERNAME_PREFIX;
+        }
+        if (hasText(usernameContains)) {
+            shape |= USERNAME_CONTAINS;
+        }
+        return shape;
+    }
+
+    //캐시 키 용도, 조건에서 무시되는 빈 문자열은 null로 맞춰서 같은 쿼리가 같은 키가 되도록 한다
+    public MemberSearchCondition normalized() {
+        MemberSearchCondition normalized = new MemberSearchCondition();
+        normalized.setUserName(hasText(userName) ? userName : null);
+        normalized.setTeamName(hasText(teamName) ? teamName : null);
+        normalized.setAgeGoe(ageGoe);
+        normalized.setAgeLoe(ageLoe);
+        normalized.setUsernamePrefix(hasText(usernamePrefix) ? usernamePrefix : null);
+        normalized.setUsernameContains(hasText(usernameContains) ? usernameContains : null);
+        return normalized;
+    }
 }
@@ -0,0 +1,23 @@
+package study.querydsl.dto;
+
+import lombok.Data;
+
+@Data
+public class TeamStatsDto {
+
+    private Long teamId;
+    private String teamName;
+    private long memberCount;
+    private double averageAge;
+    private int maxAge;
+    private int minAge;
+
+    public TeamStatsDto(Long teamId, String teamName, long memberCount, long ageSum, int maxAge, int minAge) {
+        this.teamId = teamId;
+        this.teamName = teamName;
+        this.memberCount = memberCount;
+        this.averageAge = memberCount == 0 ? 0 : (double) ageSum / memberCount;
+        this.maxAge = maxAge;
+        this.minAge = minAge;
+    }
+}
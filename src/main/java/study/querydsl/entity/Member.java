@@ -2,14 +2,40 @@ package study.querydsl.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
+//인덱스는 검색 조건(MemberRepositoryImpl, MemberSearchPlanCache)에 맞춘다
+//- username = ?, like 'x%'      : findByUsername, usernameEq, usernamePrefix(회원명 인덱스를 못 쓸 때)
+//- team_id = ? and age 범위      : 팀명 조건은 team(idx_team_name) -> member 순서로 조인
+//- age 범위                       : 팀명 조건 없이 나이만 있을 때
+//뒤의 두 인덱스는 MemberTeamDto 컬럼(member_id는 PK라 인덱스에 포함됨, username, age, team_id)을 모두 가지고 있어서
+//회원 테이블을 다시 읽지 않는다(커버링 인덱스)
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_member_username", columnList = "username"),
+        @Index(name = "idx_member_team_age", columnList = "team_id, age, username"),
+        @Index(name = "idx_member_age", columnList = "age, team_id, username")
+})
+@EntityListeners({MemberStatsListener.class, MemberUsernameIndexListener.class, MemberReadModelListener.class})
+@NamedEntityGraph(name = Member.WITH_TEAM_GRAPH, attributeNodes = @NamedAttributeNode("team"))
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Getter @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString(of = {"id", "username", "age"})
 public class Member {
 
-    @Id @GeneratedValue
+    //시퀀스 한 번에 id 50개 블록을 받아온다(pooled-lo, application.yml 참고)
+    //MemberBulkLoader의 JDBC 경로도 같은 블록 규칙으로 id를 직접 발급한다
+    public static final String ID_SEQUENCE = "member_seq";
+    public static final int ID_ALLOCATION_SIZE = 50;
+
+    public static final String WITH_TEAM_GRAPH = "Member.withTeam";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "member_seq_generator")
+    @SequenceGenerator(name = "member_seq_generator", sequenceName = ID_SEQUENCE, allocationSize = ID_ALLOCATION_SIZE)
     @Column(name = "member_id")
     private Long id;
     private String username;
@@ -19,6 +45,17 @@ public class Member {
     @JoinColumn(name = "team_id")
     private Team team;
 
+    //TeamStats 증분 갱신용, 마지막으로 DB에 반영된(로딩/저장된) 팀과 나이 - 컬럼 아님
+    @Transient
+    @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+    boolean statsTracked;
+    @Transient
+    @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+    Long statsTeamId;
+    @Transient
+    @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+    int statsAge;
+
     public Member(String username){
         this(username, 0);
     }
@@ -35,8 +72,15 @@ public class Member {
         }
     }
 
+    //팀 통계는 flush 때 MemberStatsListener(@PostUpdate)가 이전 팀 -1, 새 팀 +1로 반영한다
     public void changeTeam(Team team){
         this.team = team;
         team.getMembers().add(this);
     }
+
+    void snapshotStats() {
+        statsTracked = true;
+        statsTeamId = MemberStatsListener.teamIdOf(this);
+        statsAge = age;
+    }
 }
@@ -0,0 +1,38 @@
+package study.querydsl.entity;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import study.querydsl.repository.MemberReadModel;
+
+//Member, Team 저장/수정/삭제를 search 읽기 모델에 넘긴다(반영은 커밋 후)
+//팀명이 바뀌면 그 팀 회원들의 teamName도 바뀌므로 Team에도 붙인다
+public class MemberReadModelListener {
+
+    private final ObjectProvider<MemberReadModel> readModel;
+
+    public MemberReadModelListener(ObjectProvider<MemberReadModel> readModel) {
+        this.readModel = readModel;
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void postWrite(Object entity) {
+        if (entity instanceof Member member) {
+            readModel.getObject().memberChanged(member.getId(), member.getUsername(), member.getAge(),
+                    MemberStatsListener.teamIdOf(member));
+        } else if (entity instanceof Team team) {
+            readModel.getObject().teamChanged(team.getId(), team.getName());
+        }
+    }
+
+    @PostRemove
+    public void postRemove(Object entity) {
+        if (entity instanceof Member member) {
+            readModel.getObject().memberRemoved(member.getId());
+        } else if (entity instanceof Team team) {
+            readModel.getObject().teamRemoved(team.getId());
+        }
+    }
+}
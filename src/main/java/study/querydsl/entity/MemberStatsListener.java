@@ -0,0 +1,68 @@
+package study.querydsl.entity;
+
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import study.querydsl.repository.MemberAgeHistogram;
+import study.querydsl.repository.TeamStatsUpdater;
+
+import java.util.Objects;
+
+//Member 저장/수정/삭제를 TeamStats 증감분으로 바꿔서 TeamStatsUpdater에 넘긴다
+//수정은 마지막으로 DB에 반영된 (팀, 나이)와 비교해서 이전 팀에서 빼고 새 팀에 더한다(Member.changeTeam 포함)
+//같은 증감분을 팀별 나이 히스토그램(MemberAgeHistogram)에도 넘긴다
+//스프링이 리스너를 만들어주지만(SpringBeanContainer) EntityManagerFactory 생성 중이라 TeamStatsUpdater는 나중에 꺼낸다
+public class MemberStatsListener {
+
+    private final ObjectProvider<TeamStatsUpdater> updater;
+    private final ObjectProvider<MemberAgeHistogram> histogram;
+
+    public MemberStatsListener(ObjectProvider<TeamStatsUpdater> updater, ObjectProvider<MemberAgeHistogram> histogram) {
+        this.updater = updater;
+        this.histogram = histogram;
+    }
+
+    @PostLoad
+    public void postLoad(Member member) {
+        member.snapshotStats();
+    }
+
+    @PostPersist
+    public void postPersist(Member member) {
+        updater.getObject().add(teamIdOf(member), member.getAge());
+        histogram.getObject().add(teamIdOf(member), member.getAge());
+        member.snapshotStats();
+    }
+
+    @PostUpdate
+    public void postUpdate(Member member) {
+        Long teamId = teamIdOf(member);
+        if (member.statsTracked && Objects.equals(member.statsTeamId, teamId) && member.statsAge == member.getAge()) {
+            return;
+        }
+        TeamStatsUpdater teamStats = updater.getObject();
+        MemberAgeHistogram ages = histogram.getObject();
+        if (member.statsTracked) {
+            teamStats.remove(member.statsTeamId, member.statsAge);
+            ages.remove(member.statsTeamId, member.statsAge);
+        }
+        teamStats.add(teamId, member.getAge());
+        ages.add(teamId, member.getAge());
+        member.snapshotStats();
+    }
+
+    @PostRemove
+    public void postRemove(Member member) {
+        if (member.statsTracked) {
+            updater.getObject().remove(member.statsTeamId, member.statsAge);
+            histogram.getObject().remove(member.statsTeamId, member.statsAge);
+        }
+    }
+
+    static Long teamIdOf(Member member) {
+        //프록시여도 id는 초기화 없이 꺼낼 수 있다
+        return member.getTeam() != null ? member.getTeam().getId() : null;
+    }
+}
@@ -0,0 +1,29 @@
+package study.querydsl.entity;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import study.querydsl.repository.MemberUsernameIndex;
+
+//Member 저장/수정/삭제를 회원명 인덱스에 넘긴다(반영은 커밋 후)
+//수정은 username이 안 바뀌었어도 넘기고, 인덱스가 이전 값과 비교해서 건너뛴다
+public class MemberUsernameIndexListener {
+
+    private final ObjectProvider<MemberUsernameIndex> index;
+
+    public MemberUsernameIndexListener(ObjectProvider<MemberUsernameIndex> index) {
+        this.index = index;
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void postWrite(Member member) {
+        index.getObject().put(member.getId(), member.getUsername());
+    }
+
+    @PostRemove
+    public void postRemove(Member member) {
+        index.getObject().remove(member.getId());
+    }
+}
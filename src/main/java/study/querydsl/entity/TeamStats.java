@@ -0,0 +1,35 @@
+package study.querydsl.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.Immutable;
+
+//팀별 회원 통계(회원 수, 나이 합/최대/최소) - 팀 리포트를 회원 전체를 읽지 않고 팀 수만큼만 읽어서 만든다
+//JPA로는 읽기만 하고 값은 TeamStatsUpdater가 SQL로 갱신한다
+//- 회원 저장/수정/삭제, 팀 변경: MemberStatsListener가 트랜잭션 커밋 직전에 팀별 증감분을 한 번에 반영
+//- 벌크 연산: 청크마다 그 청크 회원이 속한 팀만 다시 계산
+//- 그 밖에 엔티티를 거치지 않은 변경: MemberRepository.reconcileTeamStats()로 전체를 다시 계산
+//회원이 빠지면 최대/최소는 증감으로 알 수 없으므로 boundsStale로 표시하고 조회 시 인덱스(team_id, age)로 다시 구한다
+@Entity
+@Immutable
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@ToString(of = {"teamId", "memberCount", "ageSum", "maxAge", "minAge", "boundsStale"})
+public class TeamStats {
+
+    @Id
+    @Column(name = "team_id")
+    private Long teamId;
+
+    //팀을 지워도 통계 row 때문에 막히지 않도록 FK는 만들지 않는다(조회 시 team과 조인해서 걸러냄)
+    @MapsId
+    @OneToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "team_id", foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
+    private Team team;
+
+    private long memberCount;
+    private long ageSum;
+    private Integer maxAge;
+    private Integer minAge;
+    private boolean boundsStale;
+}
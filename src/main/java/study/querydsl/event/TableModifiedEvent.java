@@ -0,0 +1,17 @@
+package study.querydsl.event;
+
+//member, team 테이블에 insert/update/delete가 실행되었을 때 발행
+//엔티티 변경뿐 아니라 벌크 연산(JPQL update/delete), 네이티브 쿼리도 잡힌다
+public record TableModifiedEvent(String table) {
+
+    public static final String MEMBER = "member";
+    public static final String TEAM = "team";
+
+    public boolean isMember() {
+        return MEMBER.equals(table);
+    }
+
+    public boolean isTeam() {
+        return TEAM.equals(table);
+    }
+}
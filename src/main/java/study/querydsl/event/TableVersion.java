@@ -0,0 +1,83 @@
+package study.querydsl.event;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Clock;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+//member, team 테이블 버전 - 쓰기(TableModifiedEvent)마다 1씩 올라간다
+//조회 결과의 ETag/Last-Modified(MemberController v2, v3)를 여기서 만든다
+//버전은 조회 쿼리보다 먼저 읽는다, 조회 도중에 쓰기가 끼어들면 응답은 이전 버전으로 표시되어 다음 요청에서 다시 조회된다
+//레플리카(ReplicaDataSourceConfig)에서 읽으면 커밋 후 반영 지연(max-lag)만큼은 이전 결과가 새 버전으로 표시될 수 있다
+@Component
+public class TableVersion {
+
+    //Clock 빈이 있으면 그 시각을 쓴다(테스트에서 초 경계를 기다리지 않고 시각을 옮길 수 있게)
+    private final Clock clock;
+    //재시작하면 버전이 0부터 다시 시작하므로 기동 시각을 ETag에 섞어서 이전 ETag와 겹치지 않게 한다
+    private final String epoch;
+    private final AtomicLong version = new AtomicLong();
+    //HTTP 날짜는 초 단위, 마지막 쓰기가 있었던 초(현재 시각보다 뒤로 가지 않는다)
+    //같은 초 안의 쓰기는 구분되지 않으므로 그 초가 지나기 전에는 Last-Modified를 쓰지 않는다(isModifiedThisSecond)
+    private final AtomicLong lastModified;
+
+    public TableVersion(ObjectProvider<Clock> clock) {
+        this.clock = clock.getIfAvailable(Clock::systemUTC);
+        long now = this.clock.millis();
+        this.epoch = Long.toHexString(now);
+        this.lastModified = new AtomicLong(truncateToSeconds(now));
+    }
+
+    public long getVersion() {
+        return version.get();
+    }
+
+    public long getLastModified() {
+        return lastModified.get();
+    }
+
+    //마지막 쓰기가 지금 이 초 안에 있었으면 true, 이 초 안에 쓰기가 더 있어도 Last-Modified는 그대로이므로
+    //이때 내보낸 Last-Modified로는 변경을 알 수 없다 -> ETag로만 비교한다
+    public boolean isModifiedThisSecond() {
+        return lastModified.get() >= truncateToSeconds(clock.millis());
+    }
+
+    //같은 버전이면 같은 조회 결과, key는 검색 조건/페이지처럼 결과를 정하는 값
+    public String etag(long version, Object... key) {
+        return "W/\"" + epoch + "-" + version + "-" + Integer.toHexString(Objects.hash(key)) + "\"";
+    }
+
+    @EventListener
+    public void onTableModified(TableModifiedEvent event) {
+        bump();
+
+        //커밋 전에 조회한 응답이 새 버전으로 표시되었을 수 있으므로 트랜잭션이 끝날 때 한 번 더 올린다
+        if (TransactionSynchronizationManager.isSynchronizationActive()
+                && !TransactionSynchronizationManager.hasResource(this)) {
+            TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(TableVersion.this);
+                    bump();
+                }
+            });
+        }
+    }
+
+    private void bump() {
+        //Last-Modified가 버전보다 늦게 바뀌는 일이 없도록 먼저 올린다
+        long now = clock.millis();
+        lastModified.updateAndGet(previous -> Math.max(truncateToSeconds(now), previous));
+        version.incrementAndGet();
+    }
+
+    private static long truncateToSeconds(long millis) {
+        return millis - millis % 1000;
+    }
+}
@@ -0,0 +1,47 @@
+package study.querydsl.event;
+
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+//p6spy로 실행되는 모든 SQL을 보고 member/team 테이블 쓰기를 감지한다
+//p6spy-spring-boot-starter가 JdbcEventListener 타입 빈을 자동으로 등록해준다
+@Component
+public class TableWriteListener extends SimpleJdbcEventListener {
+
+    private static final Pattern COMMENT = Pattern.compile("/\\*.*?\\*/", Pattern.DOTALL);
+    private static final Pattern WRITE = Pattern.compile("^(?:insert\\s+into|update|delete\\s+from|delete|merge\\s+into)\\s+(\\w+)");
+
+    private final ApplicationEventPublisher publisher;
+
+    public TableWriteListener(ApplicationEventPublisher publisher) {
+        this.publisher = publisher;
+    }
+
+    @Override
+    public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        if (e != null) {
+            return;
+        }
+        String table = writtenTable(statementInformation.getSql());
+        if (TableModifiedEvent.MEMBER.equals(table) || TableModifiedEvent.TEAM.equals(table)) {
+            publisher.publishEvent(new TableModifiedEvent(table));
+        }
+    }
+
+    //use_sql_comments 옵션으로 붙는 /* JPQL */ 주석은 떼고 본다
+    static String writtenTable(String sql) {
+        if (sql == null) {
+            return null;
+        }
+        String statement = COMMENT.matcher(sql).replaceAll("").trim().toLowerCase(Locale.ROOT);
+        Matcher matcher = WRITE.matcher(statement);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+}
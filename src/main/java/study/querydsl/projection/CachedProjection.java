@@ -0,0 +1,53 @@
+package study.querydsl.projection;
+
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.FactoryExpressionBase;
+import com.querydsl.core.types.Visitor;
+
+import java.util.List;
+import java.util.Objects;
+
+//CachedProjections가 만드는 FactoryExpression
+//select 절에는 args를 그대로 넘기고, 결과 row는 캐시된 RowMapper(MethodHandle)로 DTO를 만든다
+public class CachedProjection<T> extends FactoryExpressionBase<T> {
+
+    private final List<Expression<?>> args;
+    private final CachedProjections.RowMapper<T> mapper;
+
+    CachedProjection(Class<? extends T> type, List<Expression<?>> args, CachedProjections.RowMapper<T> mapper) {
+        super(type);
+        this.args = List.copyOf(args);
+        this.mapper = mapper;
+    }
+
+    @Override
+    public List<Expression<?>> getArgs() {
+        return args;
+    }
+
+    @Override
+    public T newInstance(Object... args) {
+        return mapper.map(args);
+    }
+
+    @Override
+    public <R, C> R accept(Visitor<R, C> v, C context) {
+        return v.visit(this, context);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        return obj instanceof CachedProjection<?> other
+                && getType().equals(other.getType())
+                && args.equals(other.args)
+                && mapper == other.mapper;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(getType(), args);
+    }
+}
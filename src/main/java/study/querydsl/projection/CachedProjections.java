@@ -0,0 +1,231 @@
+package study.querydsl.projection;
+
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.ExpressionException;
+import com.querydsl.core.types.Operation;
+import com.querydsl.core.types.Ops;
+import com.querydsl.core.types.Path;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StringUtils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+//Projections.bean / fields / constructor 대체
+//Querydsl 기본 구현은 row마다 리플렉션(Constructor.newInstance, Method.invoke, Field.set)으로 DTO를 만든다
+//(bean/fields는 row마다 기본 생성자도 다시 찾는다)
+//여기서는 (DTO 클래스, 방식, 프로퍼티 이름 또는 인자 타입)마다 MethodHandle을 한 번만 만들어 캐시하고 row마다 호출만 한다
+//사용법은 Projections와 같다 ex) CachedProjections.fields(UserDto.class, member.username.as("name"), member.age)
+public final class CachedProjections {
+
+    private static final ConcurrentMap<Key, RowMapper<?>> MAPPERS = new ConcurrentHashMap<>();
+
+    private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class, Object[].class);
+    private static final MethodType NO_ARG_TYPE = MethodType.methodType(Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private CachedProjections() {
+    }
+
+    //setter 사용, 기본 생성자 필요
+    public static <T> CachedProjection<T> bean(Class<? extends T> type, Expression<?>... exprs) {
+        return properties(Kind.BEAN, type, exprs);
+    }
+
+    //필드 직접 접근, 기본 생성자 필요
+    public static <T> CachedProjection<T> fields(Class<? extends T> type, Expression<?>... exprs) {
+        return properties(Kind.FIELDS, type, exprs);
+    }
+
+    //생성자 사용, 인자 타입이 맞는 생성자를 찾는다
+    public static <T> CachedProjection<T> constructor(Class<? extends T> type, Expression<?>... exprs) {
+        List<Class<?>> argTypes = new ArrayList<>(exprs.length);
+        for (Expression<?> expr : exprs) {
+            argTypes.add(expr.getType());
+        }
+        Key key = new Key(Kind.CONSTRUCTOR, type, List.copyOf(argTypes));
+        return new CachedProjection<>(type, List.of(exprs), mapper(key));
+    }
+
+    //캐시된 매퍼 수(모니터링/테스트용)
+    public static int cachedMapperCount() {
+        return MAPPERS.size();
+    }
+
+    private static <T> CachedProjection<T> properties(Kind kind, Class<? extends T> type, Expression<?>... exprs) {
+        //QBean과 같이 별칭(as)이 있으면 별칭, 없으면 경로 이름을 프로퍼티 이름으로 쓰고 select에는 별칭을 뗀 식을 넘긴다
+        List<String> names = new ArrayList<>(exprs.length);
+        List<Expression<?>> args = new ArrayList<>(exprs.length);
+        for (Expression<?> expr : exprs) {
+            if (expr instanceof Path<?> path) {
+                names.add(path.getMetadata().getName());
+                args.add(expr);
+            } else if (expr instanceof Operation<?> operation && operation.getOperator() == Ops.ALIAS) {
+                names.add(((Path<?>) operation.getArg(1)).getMetadata().getName());
+                args.add(operation.getArg(0));
+            } else {
+                throw new IllegalArgumentException("Unsupported expression " + expr);
+            }
+        }
+        Key key = new Key(kind, type, List.copyOf(names));
+        return new CachedProjection<>(type, args, mapper(key));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> RowMapper<T> mapper(Key key) {
+        return (RowMapper<T>) MAPPERS.computeIfAbsent(key, CachedProjections::create);
+    }
+
+    private static RowMapper<?> create(Key key) {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(key.type(), MethodHandles.lookup());
+            return switch (key.kind()) {
+                case CONSTRUCTOR -> constructorMapper(lookup, key);
+                case BEAN, FIELDS -> propertyMapper(lookup, key);
+            };
+        } catch (ReflectiveOperationException e) {
+            throw new ExpressionException(e.getMessage(), e);
+        }
+    }
+
+    private static RowMapper<?> constructorMapper(MethodHandles.Lookup lookup, Key key) throws ReflectiveOperationException {
+        @SuppressWarnings("unchecked")
+        List<Class<?>> argTypes = (List<Class<?>>) key.signature();
+        Constructor<?> constructor = findConstructor(key.type(), argTypes);
+        Class<?>[] parameterTypes = constructor.getParameterTypes();
+
+        //null을 primitive 파라미터에 넘기면 기본값으로 (Querydsl ConstructorExpression과 같은 동작)
+        Object[] primitiveDefaults = new Object[parameterTypes.length];
+        boolean hasPrimitive = false;
+        for (int i = 0; i < parameterTypes.length; i++) {
+            if (parameterTypes[i].isPrimitive()) {
+                primitiveDefaults[i] = Array.get(Array.newInstance(parameterTypes[i], 1), 0);   //0, false ...
+                hasPrimitive = true;
+            }
+        }
+
+        MethodHandle handle = lookup.unreflectConstructor(constructor)
+                .asSpreader(Object[].class, parameterTypes.length)
+                .asType(CONSTRUCTOR_TYPE);
+        return new ConstructorMapper(handle, hasPrimitive ? primitiveDefaults : null);
+    }
+
+    private static RowMapper<?> propertyMapper(MethodHandles.Lookup lookup, Key key) throws ReflectiveOperationException {
+        @SuppressWarnings("unchecked")
+        List<String> names = (List<String>) key.signature();
+        MethodHandle noArg = lookup.findConstructor(key.type(), MethodType.methodType(void.class)).asType(NO_ARG_TYPE);
+
+        MethodHandle[] setters = new MethodHandle[names.size()];
+        for (int i = 0; i < setters.length; i++) {
+            MethodHandle setter = key.kind() == Kind.BEAN
+                    ? lookup.unreflect(findSetter(key.type(), names.get(i)))
+                    : lookup.unreflectSetter(findField(key.type(), names.get(i)));
+            setters[i] = setter.asType(SETTER_TYPE);
+        }
+        return new PropertyMapper(noArg, setters);
+    }
+
+    private static Constructor<?> findConstructor(Class<?> type, List<Class<?>> argTypes) throws NoSuchMethodException {
+        for (Constructor<?> constructor : type.getDeclaredConstructors()) {
+            Class<?>[] parameterTypes = constructor.getParameterTypes();
+            if (parameterTypes.length != argTypes.size()) {
+                continue;
+            }
+            boolean matches = true;
+            for (int i = 0; i < parameterTypes.length && matches; i++) {
+                matches = ClassUtils.isAssignable(parameterTypes[i], argTypes.get(i));
+            }
+            if (matches) {
+                return constructor;
+            }
+        }
+        throw new NoSuchMethodException("No constructor found for " + type + " with parameters " + argTypes);
+    }
+
+    private static Method findSetter(Class<?> type, String name) throws NoSuchMethodException {
+        String setterName = "set" + StringUtils.capitalize(name);
+        for (Method method : type.getMethods()) {
+            if (method.getName().equals(setterName) && method.getParameterCount() == 1
+                    && !Modifier.isStatic(method.getModifiers())) {
+                return method;
+            }
+        }
+        throw new NoSuchMethodException("No setter " + setterName + " found in " + type);
+    }
+
+    private static Field findField(Class<?> type, String name) throws NoSuchFieldException {
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            try {
+                return current.getDeclaredField(name);
+            } catch (NoSuchFieldException e) {
+                //상위 클래스에서 계속 찾는다
+            }
+        }
+        throw new NoSuchFieldException("No field " + name + " found in " + type);
+    }
+
+    enum Kind {BEAN, FIELDS, CONSTRUCTOR}
+
+    //signature = BEAN/FIELDS는 프로퍼티 이름 목록, CONSTRUCTOR는 인자 타입 목록
+    record Key(Kind kind, Class<?> type, List<?> signature) {
+    }
+
+    interface RowMapper<T> {
+        T map(Object[] row);
+    }
+
+    private record ConstructorMapper(MethodHandle constructor, Object[] primitiveDefaults) implements RowMapper<Object> {
+        @Override
+        public Object map(Object[] row) {
+            Object[] args = row;
+            if (primitiveDefaults != null) {
+                for (int i = 0; i < args.length; i++) {
+                    if (args[i] == null && primitiveDefaults[i] != null) {
+                        if (args == row) {
+                            args = Arrays.copyOf(row, row.length);
+                        }
+                        args[i] = primitiveDefaults[i];
+                    }
+                }
+            }
+            try {
+                return (Object) constructor.invokeExact(args);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new ExpressionException(e.getMessage(), e);
+            }
+        }
+    }
+
+    private record PropertyMapper(MethodHandle noArg, MethodHandle[] setters) implements RowMapper<Object> {
+        @Override
+        public Object map(Object[] row) {
+            try {
+                Object rv = (Object) noArg.invokeExact();
+                for (int i = 0; i < setters.length; i++) {
+                    //QBean과 같이 null 값은 건너뛴다
+                    if (row[i] != null) {
+                        setters[i].invokeExact(rv, row[i]);
+                    }
+                }
+                return rv;
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new ExpressionException(e.getMessage(), e);
+            }
+        }
+    }
+}
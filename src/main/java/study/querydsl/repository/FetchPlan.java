@@ -0,0 +1,11 @@
+package study.querydsl.repository;
+
+//회원과 팀을 함께 읽을 때 팀을 가져오는 방법
+public enum FetchPlan {
+    //join fetch 한 번으로 회원 + 팀 (쿼리 1번)
+    FETCH_JOIN,
+    //회원만 조회 후 팀 프록시를 IN 절로 묶어서 초기화 (쿼리 1 + 팀 수 / batch size)
+    BATCH,
+    //Member.team 엔티티 그래프 힌트 (쿼리 1번)
+    ENTITY_GRAPH
+}
@@ -0,0 +1,9 @@
+package study.querydsl.repository;
+
+//클라이언트가 넘긴 커서(/v4/members cursor 파라미터)를 해석할 수 없을 때, 컨트롤러에서 400으로 바꾼다
+public class InvalidCursorException extends IllegalArgumentException {
+
+    public InvalidCursorException(String cursor, Throwable cause) {
+        super("잘못된 커서입니다: " + cursor, cause);
+    }
+}
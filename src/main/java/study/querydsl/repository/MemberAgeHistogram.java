@@ -0,0 +1,260 @@
+package study.querydsl.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.OptionalDouble;
+import java.util.OptionalLong;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+//팀별 나이 히스토그램(나이 -> 회원 수, 근사가 아니라 정확한 값)
+//나이 조건만 있거나 팀명 + 나이 조건만 있는 검색은 카운트를 DB 없이 구할 수 있고,
+//나이 구간이 얼마나 좁은지(선택도)를 보고 쿼리 조건 순서를 정한다(MemberRepositoryImpl)
+//
+//팀마다 (나이 오름차순, 누적 회원 수) 배열 -> 구간 회원 수는 이진 탐색 두 번
+//- 처음 조회할 때 member 테이블에서 group by team_id, age 로 만든다
+//- 엔티티 저장/수정/삭제는 MemberStatsListener가 TeamStats와 같은 증감분을 넘기고 커밋 후에 바뀐 팀만 다시 만든다
+//- JDBC 적재는 호출한 쪽에서 add, 벌크 연산은 invalidateAfterCommit
+//- 쓰기 트랜잭션 안에서는 자기 변경이 아직 없으므로 empty -> 호출한 쪽에서 DB로
+//- 증감분은 커밋 후에 반영되므로, 만드는 동안 증감분을 가진 트랜잭션이 진행 중이었으면 그 결과는 버린다
+//  (group by가 그 커밋을 이미 읽었는지 알 수 없어서 증감분을 더하면 두 번 셀 수 있다)
+@Component
+public class MemberAgeHistogram {
+
+    //팀이 없는 회원
+    private static final long NO_TEAM = -1L;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    //팀 id -> 히스토그램, 통째로 바꾸기만 한다(copy-on-write), null = 아직 안 만듦
+    private volatile Map<Long, AgeCounts> histograms;
+    //증감분을 가진 채 아직 끝나지 않은 트랜잭션 수, 그런 트랜잭션이 시작된 누적 횟수
+    //(커밋 시점 flush에서 처음 증감분이 생길 수도 있어서 beforeCommit이 아니라 첫 증감분부터 센다)
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong inFlightStarts = new AtomicLong();
+
+    public MemberAgeHistogram(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void add(Long teamId, int age) {
+        change(teamId, age, 1);
+    }
+
+    public void remove(Long teamId, int age) {
+        change(teamId, age, -1);
+    }
+
+    //teamIds 팀(null 이면 팀 없는 회원 포함 전체)에서 ageGoe <= age <= ageLoe 인 회원 수
+    public OptionalLong count(Collection<Long> teamIds, Integer ageGoe, Integer ageLoe) {
+        Map<Long, AgeCounts> snapshot = snapshot();
+        if (snapshot == null) {
+            return OptionalLong.empty();
+        }
+        return OptionalLong.of(count(snapshot, teamIds, ageGoe, ageLoe));
+    }
+
+    //나이 조건이 남기는 비율(0 ~ 1), 구할 수 없으면 empty
+    public OptionalDouble selectivity(Collection<Long> teamIds, Integer ageGoe, Integer ageLoe) {
+        //분모, 분자를 같은 스냅샷에서 센다(중간에 버려져도 어긋나지 않게)
+        Map<Long, AgeCounts> snapshot = snapshot();
+        if (snapshot == null) {
+            return OptionalDouble.empty();
+        }
+        long total = count(snapshot, teamIds, null, null);
+        if (total == 0) {
+            return OptionalDouble.empty();
+        }
+        return OptionalDouble.of((double) count(snapshot, teamIds, ageGoe, ageLoe) / total);
+    }
+
+    public void invalidateAfterCommit() {
+        invalidate();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    invalidate();
+                }
+            });
+        }
+    }
+
+    public synchronized void invalidate() {
+        histograms = null;
+    }
+
+    private boolean usable() {
+        return !(TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly());
+    }
+
+    //쓸 수 없거나 지금 만들 수 없으면 null
+    private Map<Long, AgeCounts> snapshot() {
+        if (!usable()) {
+            return null;
+        }
+        Map<Long, AgeCounts> snapshot = histograms;
+        return snapshot != null ? snapshot : build();
+    }
+
+    private static long count(Map<Long, AgeCounts> snapshot, Collection<Long> teamIds, Integer ageGoe, Integer ageLoe) {
+        long count = 0;
+        if (teamIds == null) {
+            for (AgeCounts counts : snapshot.values()) {
+                count += counts.count(ageGoe, ageLoe);
+            }
+        } else {
+            for (Long teamId : teamIds) {
+                AgeCounts counts = snapshot.get(teamId);
+                if (counts != null) {
+                    count += counts.count(ageGoe, ageLoe);
+                }
+            }
+        }
+        return count;
+    }
+
+    private synchronized Map<Long, AgeCounts> build() {
+        if (histograms != null) {
+            return histograms;
+        }
+        //증감분을 가진 트랜잭션이 진행 중이면 그 커밋이 group by에 보일지 알 수 없으므로 이번에는 만들지 않는다(DB로)
+        long startsBefore = inFlightStarts.get();
+        if (inFlight.get() > 0) {
+            return null;
+        }
+        Map<Long, TreeMap<Integer, Long>> counts = new HashMap<>();
+        jdbcTemplate.query("select coalesce(team_id, " + NO_TEAM + "), age, count(*) from member group by team_id, age",
+                rs -> {
+                    counts.computeIfAbsent(rs.getLong(1), id -> new TreeMap<>()).put(rs.getInt(2), rs.getLong(3));
+                });
+        //만드는 동안 증감분이 생긴 트랜잭션이 있으면 버린다, 그 트랜잭션의 apply는 null을 보고 건너뛴다
+        if (inFlightStarts.get() != startsBefore) {
+            return null;
+        }
+        Map<Long, AgeCounts> loaded = new HashMap<>();
+        counts.forEach((teamId, ages) -> loaded.put(teamId, AgeCounts.of(ages)));
+        histograms = Map.copyOf(loaded);
+        return histograms;
+    }
+
+    private void change(Long teamId, int age, long delta) {
+        long key = teamId != null ? teamId : NO_TEAM;
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            //이미 커밋된 변경이라 만드는 중인 히스토그램에 들어갔는지 알 수 없으므로 버린다
+            invalidate();
+            return;
+        }
+        Pending pending = (Pending) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            inFlight.incrementAndGet();
+            inFlightStarts.incrementAndGet();
+            pending = new Pending();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        pending.deltas.computeIfAbsent(key, id -> new HashMap<>()).merge(age, delta, Long::sum);
+    }
+
+    //히스토그램을 아직 안 만들었으면 만들 때 DB에서 읽으므로 건너뛴다
+    //없는 (팀, 나이)를 빼거나 음수가 되면 어딘가 어긋난 것이므로 버리고 다음 조회 때 다시 만든다
+    private synchronized void apply(Map<Long, ? extends Map<Integer, Long>> deltas) {
+        if (histograms == null) {
+            return;
+        }
+        Map<Long, AgeCounts> next = new HashMap<>(histograms);
+        for (Map.Entry<Long, ? extends Map<Integer, Long>> team : deltas.entrySet()) {
+            AgeCounts previous = next.get(team.getKey());
+            TreeMap<Integer, Long> counts = previous != null ? previous.toMap() : new TreeMap<>();
+            for (Map.Entry<Integer, Long> age : team.getValue().entrySet()) {
+                long count = counts.getOrDefault(age.getKey(), 0L) + age.getValue();
+                if (count < 0) {
+                    histograms = null;
+                    return;
+                }
+                if (count == 0) {
+                    counts.remove(age.getKey());
+                } else {
+                    counts.put(age.getKey(), count);
+                }
+            }
+            if (counts.isEmpty()) {
+                next.remove(team.getKey());
+            } else {
+                next.put(team.getKey(), AgeCounts.of(counts));
+            }
+        }
+        histograms = Map.copyOf(next);
+    }
+
+    //트랜잭션 동안의 (팀, 나이)별 증감, 커밋되면 반영
+    private class Pending implements TransactionSynchronization {
+        private final Map<Long, Map<Integer, Long>> deltas = new HashMap<>();
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(MemberAgeHistogram.this);
+            try {
+                if (status == STATUS_COMMITTED) {
+                    apply(deltas);
+                }
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+
+    //ages[i] 이하 나이의 회원 수 = cumulative[i]
+    private record AgeCounts(int[] ages, long[] cumulative) {
+
+        static AgeCounts of(TreeMap<Integer, Long> counts) {
+            int[] ages = new int[counts.size()];
+            long[] cumulative = new long[counts.size()];
+            int i = 0;
+            long sum = 0;
+            for (Map.Entry<Integer, Long> entry : counts.entrySet()) {
+                sum += entry.getValue();
+                ages[i] = entry.getKey();
+                cumulative[i] = sum;
+                i++;
+            }
+            return new AgeCounts(ages, cumulative);
+        }
+
+        long count(Integer ageGoe, Integer ageLoe) {
+            long upTo = ageLoe != null ? countAtMost(ageLoe) : total();
+            long below = ageGoe != null && ageGoe > Integer.MIN_VALUE ? countAtMost(ageGoe - 1) : 0;
+            return Math.max(upTo - below, 0);
+        }
+
+        long total() {
+            return cumulative.length == 0 ? 0 : cumulative[cumulative.length - 1];
+        }
+
+        //age 이하인 회원 수
+        private long countAtMost(int age) {
+            int index = Arrays.binarySearch(ages, age);
+            int last = index >= 0 ? index : -index - 2;
+            return last < 0 ? 0 : cumulative[last];
+        }
+
+        TreeMap<Integer, Long> toMap() {
+            TreeMap<Integer, Long> counts = new TreeMap<>();
+            long previous = 0;
+            for (int i = 0; i < ages.length; i++) {
+                counts.put(ages[i], cumulative[i] - previous);
+                previous = cumulative[i];
+            }
+            return counts;
+        }
+    }
+}
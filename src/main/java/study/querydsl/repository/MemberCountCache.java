@@ -0,0 +1,105 @@
+package study.querydsl.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.event.TableModifiedEvent;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.function.LongSupplier;
+
+//검색 조건별 카운트 쿼리 결과 캐시
+//같은 조건으로 페이지만 넘기는 경우 count(*)를 매번 다시 날리지 않도록 한다
+//member, team 테이블에 쓰기가 일어나면 전부 무효화(어떤 조건의 카운트가 바뀌었는지 알 수 없으므로)
+@Component
+public class MemberCountCache {
+
+    private final long ttlNanos;
+    private final int maxSize;
+    private final Map<MemberSearchCondition, CachedCount> counts;
+
+    //무효화 세대, 카운트 쿼리 실행 중에 무효화되면 그 결과는 캐시에 넣지 않는다
+    private long generation;
+
+    public MemberCountCache(@Value("${member.count-cache.ttl:30s}") Duration ttl,
+                            @Value("${member.count-cache.max-size:1000}") int maxSize) {
+        this.ttlNanos = ttl.toNanos();
+        this.maxSize = maxSize;
+        //접근 순서 LinkedHashMap = LRU, 최대 크기를 넘으면 가장 오래 안 쓴 조건부터 제거
+        this.counts = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<MemberSearchCondition, CachedCount> eldest) {
+                return size() > MemberCountCache.this.maxSize;
+            }
+        };
+    }
+
+    public long getOrCount(MemberSearchCondition condition, LongSupplier countQuery) {
+        MemberSearchCondition key = condition.normalized();
+        long countGeneration;
+        synchronized (this) {
+            CachedCount cached = counts.get(key);
+            if (cached != null && !cached.isExpired(System.nanoTime())) {
+                return cached.count();
+            }
+            countGeneration = generation;
+        }
+
+        long count = countQuery.getAsLong();
+
+        synchronized (this) {
+            if (countGeneration == generation) {
+                counts.put(key, new CachedCount(count, System.nanoTime() + ttlNanos));
+            }
+        }
+        return count;
+    }
+
+    public synchronized OptionalLong getIfPresent(MemberSearchCondition condition) {
+        CachedCount cached = counts.get(condition.normalized());
+        if (cached == null || cached.isExpired(System.nanoTime())) {
+            return OptionalLong.empty();
+        }
+        return OptionalLong.of(cached.count());
+    }
+
+    public synchronized void invalidateAll() {
+        generation++;
+        counts.clear();
+    }
+
+    public synchronized int size() {
+        return counts.size();
+    }
+
+    @EventListener
+    public void onTableModified(TableModifiedEvent event) {
+        invalidateAll();
+
+        //커밋 전에는 다른 트랜잭션에서 변경이 안보이고, 롤백되면 변경 자체가 사라진다
+        //트랜잭션이 끝나는 시점에 한 번 더 비워서 그 사이에 캐시된 카운트를 버린다
+        if (TransactionSynchronizationManager.isSynchronizationActive()
+                && !TransactionSynchronizationManager.hasResource(this)) {
+            TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(MemberCountCache.this);
+                    invalidateAll();
+                }
+            });
+        }
+    }
+
+    private record CachedCount(long count, long expiresAtNanos) {
+        boolean isExpired(long now) {
+            return now - expiresAtNanos >= 0;
+        }
+    }
+}
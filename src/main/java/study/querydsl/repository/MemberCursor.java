@@ -0,0 +1,40 @@
+package study.querydsl.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+//키셋 페이징 커서 인코딩/디코딩
+//마지막으로 내려준 member.id를 감춰서 클라이언트가 값에 의존하지 않도록 한다
+final class MemberCursor {
+
+    private static final String PREFIX = "m:";
+
+    private MemberCursor() {
+    }
+
+    static String encode(Long lastMemberId) {
+        String raw = PREFIX + lastMemberId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    //커서가 없으면 null(첫 페이지), 해석할 수 없으면 InvalidCursorException
+    static Long decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException(cursor, e);
+        }
+        if (!raw.startsWith(PREFIX)) {
+            throw new InvalidCursorException(cursor, null);
+        }
+        try {
+            return Long.parseLong(raw.substring(PREFIX.length()));
+        } catch (NumberFormatException e) {
+            throw new InvalidCursorException(cursor, e);
+        }
+    }
+}
@@ -3,10 +3,13 @@ package study.querydsl.repository;
 import com.querydsl.core.BooleanBuilder;
 import com.querydsl.core.types.Predicate;
 import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import jakarta.persistence.EntityManager;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
@@ -17,24 +20,33 @@ import study.querydsl.entity.QTeam;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.springframework.util.StringUtils.*;
 import static study.querydsl.entity.QMember.member;
 import static study.querydsl.entity.QTeam.team;
 
+//조회 메서드는 readOnly 트랜잭션 -> 레플리카가 설정되어 있으면 레플리카로 간다
+//searchStream은 스트림을 다 읽을 때까지 트랜잭션이 살아있어야 하므로 호출하는 쪽 트랜잭션을 그대로 쓴다
 @Repository
 public class MemberJpaRepository {
 
     private final EntityManager em;
     private final JPAQueryFactory queryFactory;
+    private final MemberCountCache countCache;
+    private final MemberUsernameIndex usernameIndex;
 
-    public MemberJpaRepository(EntityManager em) {
+    public MemberJpaRepository(EntityManager em, MemberCountCache countCache, MemberUsernameIndex usernameIndex) {
         this.em = em;
         this.queryFactory = new JPAQueryFactory(em);
+        this.countCache = countCache;
+        this.usernameIndex = usernameIndex;
     }
 
     public void save(Member member){
         em.persist(member);
+        //insert는 flush 시점에 나가므로 그 전에 같은 트랜잭션에서 캐시된 카운트를 읽지 않도록 바로 비운다
+        countCache.invalidateAll();
     }
 
     //JPA ver
@@ -44,12 +56,14 @@ public class MemberJpaRepository {
     }
 
     //JPA ver
+    @Transactional(readOnly = true)
     public List<Member> findAll(){
         return em.createQuery("select m from Member m", Member.class)
                 .getResultList();
     }
 
     //Querydsl ver
+    @Transactional(readOnly = true)
     public List<Member> findAll_Querydsl(){
         return queryFactory
                 .selectFrom(member)
@@ -57,21 +71,26 @@ public class MemberJpaRepository {
     }
 
     //JPA ver
+    @Transactional(readOnly = true)
     public List<Member> findByUsername(String username){
         return em.createQuery("select m from Member m where m.username = :username", Member.class)
                 .setParameter("username", username)
+                .setHint(HibernateHints.HINT_CACHEABLE, true)   //쿼리 캐시
                 .getResultList();
     }
 
     //Querydsl ver
+    @Transactional(readOnly = true)
     public List<Member> findByUsername_Querydsl(String username){
         return queryFactory
                 .selectFrom(member)
                 .where(member.username.eq(username))
+                .setHint(HibernateHints.HINT_CACHEABLE, true)
                 .fetch();
     }
 
     //동적쿼리 builder var
+    @Transactional(readOnly = true)
     public List<MemberTeamDto> searchByBuilder(MemberSearchCondition condition){
         BooleanBuilder builder = new BooleanBuilder();
 
@@ -79,6 +98,8 @@ public class MemberJpaRepository {
             builder.and(member.username.eq(condition.getUserName()));
         }
 
+        builder.and(usernameMatches(condition));
+
         if (hasText(condition.getTeamName())) {
             builder.and(team.name.eq(condition.getTeamName()));
         }
@@ -91,7 +112,7 @@ public class MemberJpaRepository {
             builder.and(member.age.loe(condition.getAgeLoe()));
         }
 
-        return queryFactory
+        JPAQuery<MemberTeamDto> query = queryFactory
                 .select(new QMemberTeamDto(
                         member.id.as("memberId"),
                         member.username,
@@ -99,17 +120,18 @@ public class MemberJpaRepository {
                         team.id.as("teamId"),
                         team.name.as("teamname")
                 ))
-                .from(member)
-                .leftJoin(member.team, team)
+                .from(member);
+        return joinTeam(query, condition.getTeamName())
                 .where(builder)
                 .fetch();
     }
 
     //동적쿼리 where 절 파리미터 var
     //메서드 재사용이 가능하다, 조립이 가능하다 ex) ageGoe(ageGoe).and(ageLoe(ageLoe))
+    @Transactional(readOnly = true)
     public List<MemberTeamDto> search(MemberSearchCondition condition){
 
-        return queryFactory
+        JPAQuery<MemberTeamDto> query = queryFactory
                 .select(new QMemberTeamDto(
                         member.id.as("memberId"),
                         member.username,
@@ -117,19 +139,68 @@ public class MemberJpaRepository {
                         team.id.as("teamId"),
                         team.name.as("teamName")
                 ))
-                .from(member)
-                .leftJoin(member.team, team)
+                .from(member);
+        return joinTeam(query, condition.getTeamName())
                 .where(usernameEq(condition.getUserName()),
+                        usernameMatches(condition),
                         teamNameEq(condition.getTeamName()),
                         ageGoe(condition.getAgeGoe()),
                         ageLoe(condition.getAgeLoe()))
                 .fetch();
     }
 
+    //스트리밍 조회 - 결과를 List로 다 올리지 않고 JDBC 커서로 fetchSize만큼씩 읽는다
+    //반드시 트랜잭션 안에서 사용하고 다 쓰면 close 해야함(try-with-resources)
+    public Stream<MemberTeamDto> searchStream(MemberSearchCondition condition, int fetchSize){
+
+        JPAQuery<MemberTeamDto> query = queryFactory
+                .select(new QMemberTeamDto(
+                        member.id.as("memberId"),
+                        member.username,
+                        member.age,
+                        team.id.as("teamId"),
+                        team.name.as("teamName")
+                ))
+                .from(member);
+        return joinTeam(query, condition.getTeamName())
+                .where(usernameEq(condition.getUserName()),
+                        usernameMatches(condition),
+                        teamNameEq(condition.getTeamName()),
+                        ageGoe(condition.getAgeGoe()),
+                        ageLoe(condition.getAgeLoe()))
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .stream();
+    }
+
+    //팀명 조건이 있으면 inner join - team.name = ? 가 팀 없는 회원을 어차피 걸러내고, DB가 idx_team_name부터 읽을 수 있다
+    private <T> JPAQuery<T> joinTeam(JPAQuery<T> query, String teamName) {
+        return hasText(teamName) ? query.join(member.team, team) : query.leftJoin(member.team, team);
+    }
+
     private BooleanExpression usernameEq(String userName) {
         return hasText(userName) ?  member.username.eq(userName) : null;
     }
 
+    //회원명 접두어/부분 문자열 - 회원명 인덱스(MemberUsernameIndex)에서 id를 찾아 id in (...)
+    //인덱스를 쓸 수 없으면(쓰기 트랜잭션, 후보가 너무 많음) like로 - 접두어는 idx_member_username을 탄다
+    private BooleanExpression usernameMatches(MemberSearchCondition condition) {
+        String prefix = condition.getUsernamePrefix();
+        String contains = condition.getUsernameContains();
+        if (!hasText(prefix) && !hasText(contains)) {
+            return null;
+        }
+        return usernameIndex.lookup(prefix, contains)
+                .map(ids -> member.id.in(ids))
+                .orElseGet(() -> usernameLike(prefix, contains));
+    }
+
+    private BooleanExpression usernameLike(String prefix, String contains) {
+        BooleanExpression startsWith = hasText(prefix) ? member.username.startsWith(prefix) : null;
+        BooleanExpression like = hasText(contains) ? member.username.contains(contains) : null;
+        return startsWith != null ? startsWith.and(like) : like;
+    }
+
     private BooleanExpression teamNameEq(String teamName) {
         return hasText(teamName) ? team.name.eq(teamName) : null;
     }
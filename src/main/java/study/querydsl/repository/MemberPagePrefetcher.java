@@ -0,0 +1,197 @@
+package study.querydsl.repository;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.event.TableModifiedEvent;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+
+//다음 페이지 미리 읽기
+//페이지 N을 응답한 뒤 같은 조건의 N+1 페이지 컨텐츠를 다른 스레드에서 읽어서 잠깐 들고 있는다
+//클라이언트가 바로 N+1을 요청하면 DB를 거치지 않고 돌려준다(토탈은 페이지 N의 토탈을 그대로 쓴다)
+//- 캐시 키 = (정규화한 조건, offset, 페이지 크기), TTL + 최대 크기(LRU)
+//- member, team 테이블에 쓰기가 일어나면 전부 버린다(MemberCountCache와 같은 방식)
+//- 쓰기 트랜잭션 안에서는 커밋 전 변경이 다른 스레드에서 안보이므로 꺼내지도 미리 읽지도 않는다
+//히트율을 보고 켜둘지 정한다(/cache/stats의 pagePrefetch)
+@Component
+public class MemberPagePrefetcher {
+
+    private final boolean enabled;
+    private final long ttlNanos;
+    private final int maxSize;
+    private final AsyncTaskExecutor executor;
+    private final Map<PageKey, PrefetchedPage> pages;
+    private final Set<PageKey> inFlight = new HashSet<>();
+
+    //무효화 세대, 미리 읽는 중에 무효화되면 그 결과는 캐시에 넣지 않는다
+    private long generation;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder prefetched = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    public MemberPagePrefetcher(@Value("${member.prefetch.enabled:false}") boolean enabled,
+                                @Value("${member.prefetch.ttl:10s}") Duration ttl,
+                                @Value("${member.prefetch.max-size:200}") int maxSize,
+                                @Qualifier("applicationTaskExecutor") AsyncTaskExecutor executor) {
+        this.enabled = enabled;
+        this.ttlNanos = ttl.toNanos();
+        this.maxSize = maxSize;
+        this.executor = executor;
+        this.pages = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<PageKey, PrefetchedPage> eldest) {
+                return size() > MemberPagePrefetcher.this.maxSize;
+            }
+        };
+    }
+
+    public Optional<Page<MemberTeamDto>> get(MemberSearchCondition condition, Pageable pageable) {
+        if (!usable() || pageable.isUnpaged()) {
+            return Optional.empty();
+        }
+        PrefetchedPage page;
+        synchronized (this) {
+            page = pages.get(PageKey.of(condition, pageable));
+            if (page != null && page.isExpired(System.nanoTime())) {
+                page = null;
+            }
+        }
+        if (page == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        return Optional.of(new PageImpl<>(page.content(), pageable, page.total()));
+    }
+
+    //page 다음 페이지가 있으면 loader(조건, 다음 페이지)로 컨텐츠를 읽어둔다
+    //loader는 다른 스레드에서 호출되므로 스스로 트랜잭션을 열어야 한다
+    public void prefetchNext(MemberSearchCondition condition, Page<MemberTeamDto> page,
+                             BiFunction<MemberSearchCondition, Pageable, List<MemberTeamDto>> loader) {
+        if (!usable() || !page.hasNext()) {
+            return;
+        }
+        MemberSearchCondition normalized = condition.normalized();
+        Pageable next = page.nextPageable();
+        PageKey key = PageKey.of(normalized, next);
+        long total = page.getTotalElements();
+        long prefetchGeneration;
+        synchronized (this) {
+            PrefetchedPage cached = pages.get(key);
+            if ((cached != null && !cached.isExpired(System.nanoTime())) || !inFlight.add(key)) {
+                return;
+            }
+            prefetchGeneration = generation;
+        }
+
+        try {
+            executor.execute(() -> {
+                try {
+                    List<MemberTeamDto> content = loader.apply(normalized, next);
+                    synchronized (this) {
+                        if (prefetchGeneration == generation) {
+                            pages.put(key, new PrefetchedPage(List.copyOf(content), total, System.nanoTime() + ttlNanos));
+                            prefetched.increment();
+                        } else {
+                            dropped.increment();
+                        }
+                    }
+                } finally {
+                    synchronized (this) {
+                        inFlight.remove(key);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            //미리 읽기는 안해도 그만, 실행기가 바쁘면 건너뛴다
+            synchronized (this) {
+                inFlight.remove(key);
+            }
+            dropped.increment();
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        generation++;
+        pages.clear();
+    }
+
+    public synchronized int size() {
+        return pages.size();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    //미리 읽어서 캐시에 넣은 페이지 수, 히트 수와 비교하면 헛수고한 비율을 알 수 있다
+    public long getPrefetchCount() {
+        return prefetched.sum();
+    }
+
+    //무효화되거나 실행기가 바빠서 버린 미리 읽기
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    @EventListener
+    public void onTableModified(TableModifiedEvent event) {
+        invalidateAll();
+
+        //트랜잭션이 끝나는 시점에 한 번 더 비워서 그 사이에 미리 읽은 페이지를 버린다
+        if (TransactionSynchronizationManager.isSynchronizationActive()
+                && !TransactionSynchronizationManager.hasResource(this)) {
+            TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(MemberPagePrefetcher.this);
+                    invalidateAll();
+                }
+            });
+        }
+    }
+
+    private boolean usable() {
+        return enabled && !(TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly());
+    }
+
+    //정렬은 페이지 쿼리에서 쓰지 않으므로 키에 넣지 않는다
+    private record PageKey(MemberSearchCondition condition, long offset, int pageSize) {
+        static PageKey of(MemberSearchCondition condition, Pageable pageable) {
+            return new PageKey(condition.normalized(), pageable.getOffset(), pageable.getPageSize());
+        }
+    }
+
+    private record PrefetchedPage(List<MemberTeamDto> content, long total, long expiresAtNanos) {
+        boolean isExpired(long now) {
+            return now - expiresAtNanos >= 0;
+        }
+    }
+}
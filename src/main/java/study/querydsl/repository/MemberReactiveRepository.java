@@ -0,0 +1,111 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.sql.H2Templates;
+import com.querydsl.sql.SQLBindings;
+import com.querydsl.sql.SQLQuery;
+import com.querydsl.sql.SQLTemplates;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+
+import java.util.List;
+
+import static org.springframework.util.StringUtils.hasText;
+import static study.querydsl.repository.SMember.member;
+import static study.querydsl.repository.STeam.team;
+
+//MemberJpaRepository.search 와 같은 검색을 R2DBC로 - 결과를 List로 모으지 않고 Flux로 흘려보낸다
+//SQL은 Querydsl SQL로 만들고 실행만 DatabaseClient에 맡긴다(JPA 엔티티/영속성 컨텍스트를 거치지 않음)
+//구독자가 request(n)한 만큼만 행을 가져오므로 느린 클라이언트가 있어도 결과 전체가 메모리에 쌓이지 않는다
+@Repository
+@ConditionalOnProperty(prefix = "member.r2dbc", name = "url")
+@RequiredArgsConstructor
+public class MemberReactiveRepository {
+
+    private static final SQLTemplates TEMPLATES = new H2Templates();
+    //드라이버에 한 번에 요청하는 행 수, 다 내보내면 75%쯤에서 다음 묶음을 요청한다
+    private static final int FETCH_SIZE = 256;
+
+    private final DatabaseClient databaseClient;
+
+    public Flux<MemberTeamDto> search(MemberSearchCondition condition) {
+        SQLBindings sql = searchQuery(condition).getSQL();
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(toIndexedMarkers(sql.getSQL()));
+        List<Object> bindings = sql.getNullFriendlyBindings();
+        for (int i = 0; i < bindings.size(); i++) {
+            spec = spec.bind(i, bindings.get(i));
+        }
+        return spec.map((row, metadata) -> new MemberTeamDto(
+                        row.get(0, Long.class),
+                        row.get(1, String.class),
+                        row.get(2, Integer.class),
+                        row.get(3, Long.class),
+                        row.get(4, String.class)))
+                .all()
+                .limitRate(FETCH_SIZE)
+                //r2dbc-h2는 내부적으로 H2 JDBC 엔진을 동기 호출하므로 요청 스레드(톰캣)가 아닌 별도 스케줄러에서 구독
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    //member_id 순서로 내려보내서 같은 조건이면 항상 같은 순서
+    SQLQuery<?> searchQuery(MemberSearchCondition condition) {
+        return new SQLQuery<Void>(TEMPLATES)
+                .select(member.memberId, member.username, member.age, team.id, team.name)
+                .from(member)
+                .leftJoin(team).on(member.teamId.eq(team.id))
+                .where(usernameEq(condition.getUserName()),
+                        teamNameEq(condition.getTeamName()),
+                        ageGoe(condition.getAgeGoe()),
+                        ageLoe(condition.getAgeLoe()),
+                        usernameLike(condition.getUsernamePrefix(), condition.getUsernameContains()))
+                .orderBy(member.memberId.asc());
+    }
+
+    //Querydsl SQL은 ? 자리표시자, R2DBC H2 드라이버는 $1, $2 ... 를 쓴다
+    //문자열 리터럴(like escape '\' 등) 안의 ?는 그대로 둔다
+    static String toIndexedMarkers(String sql) {
+        StringBuilder result = new StringBuilder(sql.length() + 16);
+        int index = 0;
+        boolean inLiteral = false;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (c == '\'') {
+                inLiteral = !inLiteral;
+            }
+            if (c == '?' && !inLiteral) {
+                result.append('$').append(++index);
+            } else {
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+
+    private BooleanExpression usernameEq(String username) {
+        return hasText(username) ? member.username.eq(username) : null;
+    }
+
+    private BooleanExpression teamNameEq(String teamName) {
+        return hasText(teamName) ? team.name.eq(teamName) : null;
+    }
+
+    private BooleanExpression ageGoe(Integer ageGoe) {
+        return ageGoe != null ? member.age.goe(ageGoe) : null;
+    }
+
+    private BooleanExpression ageLoe(Integer ageLoe) {
+        return ageLoe != null ? member.age.loe(ageLoe) : null;
+    }
+
+    private BooleanExpression usernameLike(String prefix, String contains) {
+        BooleanExpression startsWith = hasText(prefix) ? member.username.startsWith(prefix) : null;
+        BooleanExpression like = hasText(contains) ? member.username.contains(contains) : null;
+        return startsWith != null ? startsWith.and(like) : like;
+    }
+}
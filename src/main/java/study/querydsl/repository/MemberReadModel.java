@@ -0,0 +1,532 @@
+package study.querydsl.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static org.springframework.util.StringUtils.hasText;
+
+//search(MemberTeamDto) 전용 메모리 읽기 모델
+//팀별 파티션에 회원을 나이 순으로 정렬해서 primitive 배열로 들고 있는다
+//- id는 long[], 나이는 int[], 회원명은 UTF-8 바이트를 한 byte[]에 이어 붙이고 시작 위치만 int[]로
+//  -> 회원 수와 상관없이 파티션당 객체 몇 개라서 GC가 훑을 게 거의 없다
+//- 팀명 조건이 있으면 그 팀 파티션만, 나이 조건은 이진 탐색으로 구간을 잘라서 읽는다
+//- 결과 순서는 팀별 나이 순(DB search는 순서를 정하지 않는다)
+//
+//동기화
+//- 처음 조회할 때 member, team 테이블에서 만든다
+//- 엔티티 저장/수정/삭제(MemberReadModelListener)는 커밋된 뒤 바뀐 파티션만 새로 만들어서 통째로 바꾼다(읽는 쪽은 락 없음)
+//  회원이 있던 파티션은 회원 id -> 팀 id 인덱스로 찾고, 남는 회원은 회원명을 디코딩하지 않고 배열 구간을 그대로 복사한다
+//- 엔티티를 거치지 않는 벌크/JDBC 변경은 invalidateAfterCommit으로 버리고 다음 조회 때 다시 만든다
+//- 쓰기 트랜잭션 안에서는 자기가 쓴 회원이 아직 없으므로 쓰지 않는다(empty -> DB)
+//member.read-model.enabled=true 일 때만 쓴다, check()로 DB와 비교할 수 있다
+@Component
+public class MemberReadModel {
+
+    private static final long NO_TEAM = -1L;
+    private static final int MAX_REPORTED_IDS = 100;
+    private static final long[] NO_IDS = new long[0];
+    private static final Comparator<Row> ROW_ORDER = Comparator.comparingInt(Row::age).thenComparingLong(Row::memberId);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+
+    //둘 다 통째로 바꾸기만 한다(copy-on-write)
+    private volatile Map<Long, Partition> partitions = Map.of();
+    private volatile Map<Long, String> teamNames = Map.of();
+    private volatile boolean built;
+    //회원이 어느 파티션에 있는지, 이 객체의 락을 잡고(ensureBuilt, apply)만 쓴다
+    private TeamIdIndex teamIdByMember;
+
+    public MemberReadModel(JdbcTemplate jdbcTemplate,
+                           @Value("${member.read-model.enabled:false}") boolean enabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+    }
+
+    //읽기 모델을 쓸 수 없으면 empty, 호출한 쪽에서 DB로 조회한다
+    public Optional<List<MemberTeamDto>> search(MemberSearchCondition condition) {
+        if (!usable()) {
+            return Optional.empty();
+        }
+        ensureBuilt();
+
+        String teamName = condition.getTeamName();
+        Collection<Partition> targets = partitions.values();
+        if (hasText(teamName)) {
+            targets = targets.stream().filter(partition -> teamName.equals(partition.teamName)).toList();
+        }
+
+        List<MemberTeamDto> result = new ArrayList<>();
+        for (Partition partition : targets) {
+            partition.search(condition, result);
+        }
+        return Optional.of(result);
+    }
+
+    public void memberChanged(Long memberId, String username, int age, Long teamId) {
+        if (memberId != null) {
+            change(pending -> pending.members.put(memberId,
+                    new Row(memberId, username, age, teamId != null ? teamId : NO_TEAM)));
+        }
+    }
+
+    public void memberRemoved(Long memberId) {
+        if (memberId != null) {
+            change(pending -> pending.members.put(memberId, null));
+        }
+    }
+
+    public void teamChanged(Long teamId, String name) {
+        if (teamId != null) {
+            change(pending -> pending.teams.put(teamId, Optional.ofNullable(name)));
+        }
+    }
+
+    public void teamRemoved(Long teamId) {
+        if (teamId != null) {
+            change(pending -> pending.teams.put(teamId, null));
+        }
+    }
+
+    //엔티티를 거치지 않은 변경 후 - 지금 버리고, 트랜잭션이 있으면 끝날 때 한 번 더 버린다
+    //(그 사이 다른 스레드가 커밋 전 데이터로 다시 만들었을 수 있으므로)
+    public void invalidateAfterCommit() {
+        invalidate();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    invalidate();
+                }
+            });
+        }
+    }
+
+    public synchronized void invalidate() {
+        built = false;
+        partitions = Map.of();
+        teamNames = Map.of();
+        teamIdByMember = null;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int size() {
+        return partitions.values().stream().mapToInt(partition -> partition.ids.length).sum();
+    }
+
+    //DB와 비교 - 비교하는 동안 커밋된 변경은 차이로 보일 수 있으므로 차이가 있으면 한 번 더 확인한다
+    public Consistency check() {
+        ensureBuilt();
+        Map<Long, Partition> snapshot = partitions;
+
+        Map<Long, MemberTeamDto> db = new HashMap<>();
+        jdbcTemplate.query("select m.member_id, m.username, m.age, m.team_id, t.name"
+                        + " from member m left join team t on t.id = m.team_id",
+                rs -> {
+                    long teamId = rs.getLong(4);
+                    db.put(rs.getLong(1), new MemberTeamDto(rs.getLong(1), rs.getString(2), rs.getInt(3),
+                            rs.wasNull() ? null : teamId, rs.getString(5)));
+                });
+
+        List<Long> missing = new ArrayList<>();
+        List<Long> different = new ArrayList<>();
+        Set<Long> seen = new HashSet<>();
+        List<MemberTeamDto> rows = new ArrayList<>();
+        for (Partition partition : snapshot.values()) {
+            partition.search(new MemberSearchCondition(), rows);
+        }
+        List<Long> extra = new ArrayList<>();
+        for (MemberTeamDto row : rows) {
+            seen.add(row.getMemberId());
+            MemberTeamDto dbRow = db.get(row.getMemberId());
+            if (dbRow == null) {
+                report(extra, row.getMemberId());
+            } else if (!dbRow.equals(row)) {
+                report(different, row.getMemberId());
+            }
+        }
+        for (Long memberId : db.keySet()) {
+            if (!seen.contains(memberId)) {
+                report(missing, memberId);
+            }
+        }
+        return new Consistency(db.size(), rows.size(), missing, extra, different);
+    }
+
+    //missing = DB에만 있음, extra = 읽기 모델에만 있음, different = 컬럼 값이 다름(각각 최대 100개 id)
+    public record Consistency(int dbRows, int modelRows, List<Long> missing, List<Long> extra, List<Long> different) {
+        public boolean isConsistent() {
+            return dbRows == modelRows && missing.isEmpty() && extra.isEmpty() && different.isEmpty();
+        }
+    }
+
+    private static void report(List<Long> ids, Long memberId) {
+        if (ids.size() < MAX_REPORTED_IDS) {
+            ids.add(memberId);
+        }
+    }
+
+    private boolean usable() {
+        return enabled && !(TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly());
+    }
+
+    private void ensureBuilt() {
+        if (built) {
+            return;
+        }
+        synchronized (this) {
+            if (built) {
+                return;
+            }
+            //적재 중에 커밋된 변경은 이 락을 기다렸다가 적재 뒤에 반영된다
+            Map<Long, String> names = new HashMap<>();
+            jdbcTemplate.query("select id, name from team", rs -> {
+                names.put(rs.getLong(1), rs.getString(2));
+            });
+            Map<Long, List<Row>> rowsByTeam = new HashMap<>();
+            TeamIdIndex teamIds = new TeamIdIndex();
+            jdbcTemplate.query("select member_id, username, age, team_id from member", rs -> {
+                long teamId = rs.getLong(4);
+                if (rs.wasNull()) {
+                    teamId = NO_TEAM;
+                }
+                rowsByTeam.computeIfAbsent(teamId, id -> new ArrayList<>())
+                        .add(new Row(rs.getLong(1), rs.getString(2), rs.getInt(3), teamId));
+                teamIds.put(rs.getLong(1), teamId);
+            });
+
+            Map<Long, Partition> loaded = new HashMap<>();
+            rowsByTeam.forEach((teamId, rows) -> loaded.put(teamId,
+                    Partition.empty(teamId).with(names.get(teamId), NO_IDS, rows)));
+            this.teamIdByMember = teamIds;
+            this.teamNames = Collections.unmodifiableMap(names);
+            this.partitions = Map.copyOf(loaded);
+            this.built = true;
+        }
+    }
+
+    private void change(Consumer<Pending> change) {
+        //트랜잭션 밖에서는 엔티티 변경이 flush 되지 않으므로 여기 올 일이 없다, 오더라도 바로 반영
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            Pending pending = new Pending();
+            change.accept(pending);
+            apply(pending.members, pending.teams);
+            return;
+        }
+        Pending pending = (Pending) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new Pending();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        change.accept(pending);
+    }
+
+    //바뀐 회원이 있던 파티션, 옮겨 간 파티션, 이름이 바뀐 팀 파티션만 다시 만든다
+    //회원이 있던 파티션은 teamIdByMember로 바로 찾는다(전체 회원을 훑지 않음)
+    private synchronized void apply(Map<Long, Row> memberChanges, Map<Long, Optional<String>> teamChanges) {
+        if (!built) {
+            return;
+        }
+        Map<Long, String> names = new HashMap<>(teamNames);
+        teamChanges.forEach((teamId, name) -> {
+            if (name == null) {
+                names.remove(teamId);
+            } else {
+                names.put(teamId, name.orElse(null));
+            }
+        });
+
+        Set<Long> touched = new HashSet<>(teamChanges.keySet());
+        Map<Long, List<Row>> addedByTeam = new HashMap<>();
+        memberChanges.forEach((memberId, row) -> {
+            long previousTeamId = teamIdByMember.get(memberId);
+            if (previousTeamId != TeamIdIndex.MISSING) {
+                touched.add(previousTeamId);
+            }
+            if (row == null) {
+                teamIdByMember.remove(memberId);
+            } else {
+                teamIdByMember.put(memberId, row.teamId());
+                touched.add(row.teamId());
+                addedByTeam.computeIfAbsent(row.teamId(), id -> new ArrayList<>()).add(row);
+            }
+        });
+        long[] changedIds = memberChanges.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+
+        Map<Long, Partition> next = new HashMap<>(partitions);
+        for (long teamId : touched) {
+            Partition previous = partitions.getOrDefault(teamId, Partition.empty(teamId));
+            Partition updated = previous.with(names.get(teamId), changedIds, addedByTeam.getOrDefault(teamId, List.of()));
+            if (updated.ids.length == 0) {
+                next.remove(teamId);
+            } else {
+                next.put(teamId, updated);
+            }
+        }
+        teamNames = Collections.unmodifiableMap(names);
+        partitions = Map.copyOf(next);
+    }
+
+    private record Row(long memberId, String username, int age, long teamId) {
+    }
+
+    //트랜잭션 동안의 변경, 같은 회원/팀은 마지막 것만(삭제는 null), 커밋되면 반영
+    private class Pending implements TransactionSynchronization {
+        private final Map<Long, Row> members = new LinkedHashMap<>();
+        //팀 id -> 팀명(Optional.empty() = 이름이 null), 삭제는 null
+        private final Map<Long, Optional<String>> teams = new LinkedHashMap<>();
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(MemberReadModel.this);
+            if (status == STATUS_COMMITTED) {
+                apply(members, teams);
+            }
+        }
+    }
+
+    //한 팀의 회원, (나이, id) 순으로 정렬
+    private static final class Partition {
+        private final long teamId;
+        private final String teamName;
+        private final long[] ids;
+        private final int[] ages;
+        private final byte[] usernameBytes;
+        //i번째 회원명 = usernameBytes[usernameOffsets[i], usernameOffsets[i + 1])
+        private final int[] usernameOffsets;
+        private final boolean[] usernameNull;
+
+        private Partition(long teamId, String teamName, long[] ids, int[] ages,
+                          byte[] usernameBytes, int[] usernameOffsets, boolean[] usernameNull) {
+            this.teamId = teamId;
+            this.teamName = teamName;
+            this.ids = ids;
+            this.ages = ages;
+            this.usernameBytes = usernameBytes;
+            this.usernameOffsets = usernameOffsets;
+            this.usernameNull = usernameNull;
+        }
+
+        static Partition empty(long teamId) {
+            return new Partition(teamId, null, NO_IDS, new int[0], new byte[0], new int[]{0}, new boolean[0]);
+        }
+
+        //removedIds(정렬됨)에 있는 회원을 빼고 added를 넣은 새 파티션
+        //남는 회원은 이미 (나이, id) 순이므로 정렬한 added와 병합만 하고, 회원명 바이트는 구간째 복사한다
+        Partition with(String newTeamName, long[] removedIds, List<Row> added) {
+            List<Row> sortedAdded = new ArrayList<>(added);
+            sortedAdded.sort(ROW_ORDER);
+            byte[][] encoded = new byte[sortedAdded.size()][];
+            int length = 0;
+            for (int a = 0; a < encoded.length; a++) {
+                String username = sortedAdded.get(a).username();
+                encoded[a] = username == null ? new byte[0] : username.getBytes(StandardCharsets.UTF_8);
+                length += encoded[a].length;
+            }
+            boolean[] keep = new boolean[ids.length];
+            int size = encoded.length;
+            for (int i = 0; i < ids.length; i++) {
+                if (Arrays.binarySearch(removedIds, ids[i]) < 0) {
+                    keep[i] = true;
+                    size++;
+                    length += usernameOffsets[i + 1] - usernameOffsets[i];
+                }
+            }
+
+            long[] newIds = new long[size];
+            int[] newAges = new int[size];
+            int[] newOffsets = new int[size + 1];
+            boolean[] newUsernameNull = new boolean[size];
+            byte[] newBytes = new byte[length];
+            int i = 0;
+            int a = 0;
+            int position = 0;
+            for (int out = 0; out < size; out++) {
+                while (i < ids.length && !keep[i]) {
+                    i++;
+                }
+                boolean takeKept = i < ids.length && (a == encoded.length || ages[i] < sortedAdded.get(a).age()
+                        || (ages[i] == sortedAdded.get(a).age() && ids[i] < sortedAdded.get(a).memberId()));
+                newOffsets[out] = position;
+                if (takeKept) {
+                    int from = usernameOffsets[i];
+                    int bytes = usernameOffsets[i + 1] - from;
+                    System.arraycopy(usernameBytes, from, newBytes, position, bytes);
+                    position += bytes;
+                    newIds[out] = ids[i];
+                    newAges[out] = ages[i];
+                    newUsernameNull[out] = usernameNull[i];
+                    i++;
+                } else {
+                    Row row = sortedAdded.get(a);
+                    System.arraycopy(encoded[a], 0, newBytes, position, encoded[a].length);
+                    position += encoded[a].length;
+                    newIds[out] = row.memberId();
+                    newAges[out] = row.age();
+                    newUsernameNull[out] = row.username() == null;
+                    a++;
+                }
+            }
+            newOffsets[size] = position;
+            return new Partition(teamId, newTeamName, newIds, newAges, newBytes, newOffsets, newUsernameNull);
+        }
+
+        void search(MemberSearchCondition condition, List<MemberTeamDto> result) {
+            int from = condition.getAgeGoe() != null ? firstAgeAtLeast(condition.getAgeGoe()) : 0;
+            int to = condition.getAgeLoe() != null ? firstAgeAtLeast(condition.getAgeLoe() + 1L) : ids.length;
+            String userName = condition.getUserName();
+            String prefix = condition.getUsernamePrefix();
+            String contains = condition.getUsernameContains();
+            boolean filterUsername = hasText(userName) || hasText(prefix) || hasText(contains);
+            Long resultTeamId = teamId == NO_TEAM ? null : teamId;
+
+            for (int i = from; i < to; i++) {
+                String username = username(i);
+                if (filterUsername && (username == null
+                        || (hasText(userName) && !username.equals(userName))
+                        || (hasText(prefix) && !username.startsWith(prefix))
+                        || (hasText(contains) && !username.contains(contains)))) {
+                    continue;
+                }
+                result.add(new MemberTeamDto(ids[i], username, ages[i], resultTeamId, teamName));
+            }
+        }
+
+        //ages[i] >= age 인 첫 위치(정렬되어 있으므로 이진 탐색)
+        private int firstAgeAtLeast(long age) {
+            int low = 0;
+            int high = ages.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (ages[mid] < age) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        private String username(int i) {
+            if (usernameNull[i]) {
+                return null;
+            }
+            return new String(usernameBytes, usernameOffsets[i], usernameOffsets[i + 1] - usernameOffsets[i],
+                    StandardCharsets.UTF_8);
+        }
+
+    }
+
+    //회원 id -> 팀 id(팀 없음은 NO_TEAM), 회원마다 객체를 만들지 않도록 long 배열 두 개로 된 open addressing 맵(선형 탐사)
+    private static final class TeamIdIndex {
+        //빈 칸 표시 겸 get 결과 없음, 회원 id/팀 id로 나올 수 없는 값
+        static final long MISSING = Long.MIN_VALUE;
+
+        private long[] keys;
+        private long[] values;
+        private int size;
+
+        TeamIdIndex() {
+            allocate(16);
+        }
+
+        long get(long memberId) {
+            for (int i = slot(memberId); ; i = next(i)) {
+                if (keys[i] == memberId) {
+                    return values[i];
+                }
+                if (keys[i] == MISSING) {
+                    return MISSING;
+                }
+            }
+        }
+
+        void put(long memberId, long teamId) {
+            if ((size + 1) * 2 > keys.length) {
+                rehash();
+            }
+            int i = slot(memberId);
+            while (keys[i] != MISSING && keys[i] != memberId) {
+                i = next(i);
+            }
+            if (keys[i] == MISSING) {
+                keys[i] = memberId;
+                size++;
+            }
+            values[i] = teamId;
+        }
+
+        void remove(long memberId) {
+            int hole = slot(memberId);
+            while (keys[hole] != memberId) {
+                if (keys[hole] == MISSING) {
+                    return;
+                }
+                hole = next(hole);
+            }
+            //뒤에 밀려나 있던 항목을 빈 칸으로 당겨서 탐사가 중간에 끊기지 않게 한다(backward shift)
+            int mask = keys.length - 1;
+            for (int j = next(hole); keys[j] != MISSING; j = next(j)) {
+                int home = slot(keys[j]);
+                if (((j - home) & mask) >= ((j - hole) & mask)) {
+                    keys[hole] = keys[j];
+                    values[hole] = values[j];
+                    hole = j;
+                }
+            }
+            keys[hole] = MISSING;
+            size--;
+        }
+
+        private void rehash() {
+            long[] oldKeys = keys;
+            long[] oldValues = values;
+            allocate(oldKeys.length * 2);
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != MISSING) {
+                    put(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+
+        private void allocate(int capacity) {
+            keys = new long[capacity];
+            Arrays.fill(keys, MISSING);
+            values = new long[capacity];
+        }
+
+        private int slot(long memberId) {
+            return (int) ((memberId * 0x9E3779B97F4A7C15L) >>> 32) & (keys.length - 1);
+        }
+
+        private int next(int i) {
+            return (i + 1) & (keys.length - 1);
+        }
+    }
+}
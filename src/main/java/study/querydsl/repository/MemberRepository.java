@@ -1,10 +1,15 @@
 package study.querydsl.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import study.querydsl.entity.Member;
 
 import java.util.List;
 
 public interface MemberRepository extends JpaRepository<Member, Long>, MemberRepositoryCustom {
+    //쿼리 캐시 - 같은 username 조회는 id 목록을 캐시에서 꺼내고 엔티티는 2차 캐시에서 가져온다
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     List<Member> findByUsername(String username);
 }
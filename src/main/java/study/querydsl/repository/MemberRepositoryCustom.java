@@ -2,18 +2,75 @@ package study.querydsl.repository;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.CursorPage;
+import study.querydsl.dto.MemberColumns;
+import study.querydsl.dto.MemberDto;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.TeamStatsDto;
+import study.querydsl.entity.Member;
 
 import java.util.List;
 
 //사용자 정의 리포지토리(동적 쿼리 작성시 JPA는 인터페이스라 동적 쿼리 못쓰니까 만듬
 //인터페이스 생성후 해당 인터페이스 상속받는 구현체 구현(이름은 JPA리포지토리 + Impl로 해야함)
 //커스텀 인터페이스 상속받아 구현 후 JPA리포지토리에 커스템 인터페이스 상속
+//조회 메서드는 readOnly 트랜잭션 -> 레플리카가 설정되어 있으면 레플리카로 간다(ReplicaDataSourceConfig)
 public interface MemberRepositoryCustom {
+    @Transactional(readOnly = true)
     List<MemberTeamDto> search(MemberSearchCondition condition);
+
+    //팀 컬럼이 없는 프로젝션, 팀명 조건이 없으면 team 조인을 생략한다
+    @Transactional(readOnly = true)
+    List<MemberDto> searchMemberDto(MemberSearchCondition condition);
     
     //카운트 쿼리 유무
+    @Transactional(readOnly = true)
     Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable);
+    @Transactional(readOnly = true)
     Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable);
+
+    //근사 토탈 - 캐시된 카운트가 있으면 그대로 쓰고, 2페이지 이후는 카운트 쿼리 없이 추정값을 준다
+    @Transactional(readOnly = true)
+    Page<MemberTeamDto> searchPageApproximate(MemberSearchCondition condition, Pageable pageable);
+
+    //UI 표시용 근사 카운트 - 캐시된 카운트, 팀별 나이 히스토그램(팀명/나이 조건은 정확), 회원명 인덱스 후보 수로 DB 없이 구한다
+    //회원명 조건은 후보 수를 상한으로 쓰므로 실제보다 클 수 있다
+    @Transactional(readOnly = true)
+    long estimateCount(MemberSearchCondition condition);
+
+    //컨텐츠 쿼리와 카운트 쿼리를 동시에 실행 - 페이지 응답시간이 두 쿼리의 합이 아니라 긴 쪽
+    @Transactional(readOnly = true)
+    Page<MemberTeamDto> searchPageParallel(MemberSearchCondition condition, Pageable pageable);
+
+    //리포트/집계용 컬럼 결과 - id, age는 primitive 배열, username/teamName은 사전 인코딩
+    @Transactional(readOnly = true)
+    MemberColumns fetchColumns(MemberSearchCondition condition);
+
+    //키셋 페이징 한 페이지 최대 크기
+    int MAX_CURSOR_PAGE_SIZE = 1000;
+
+    //키셋(커서) 페이징 - offset 없이 member.id 기준으로 이어서 조회
+    //size는 1 ~ MAX_CURSOR_PAGE_SIZE, 벗어나면 IllegalArgumentException
+    @Transactional(readOnly = true)
+    CursorPage<MemberTeamDto> searchAfter(MemberSearchCondition condition, String cursor, int size);
+
+    //회원 엔티티 + 팀을 N+1 없이 조회, 팀을 가져오는 방법은 FetchPlan으로 고른다
+    @Transactional(readOnly = true)
+    List<Member> findMembersWithTeams(MemberSearchCondition condition, FetchPlan fetchPlan);
+
+    //팀별 회원 수/평균/최대/최소 나이(team.name 순) - team_stats에서 팀 수만큼만 읽는다
+    @Transactional(readOnly = true)
+    List<TeamStatsDto> findTeamStats();
+
+    //team_stats 전체를 member 테이블 기준으로 다시 계산(엔티티 콜백을 거치지 않는 변경 후, 벌크 연산은 청크마다 알아서 맞춘다)
+    void reconcileTeamStats();
+
+    //벌크 연산 - 검색 조건에 맞는 회원을 id 청크 단위로 수정/삭제하고 영속성 컨텍스트에서 해당 회원만 내린다
+    //em.flush(), em.clear()를 호출하는 쪽에서 따로 챙기지 않아도 된다
+    //끝나면 team_stats도 다시 계산한다
+    //청크마다 커밋해서 lock 범위를 줄이려면 트랜잭션 밖에서 호출해야 한다, 트랜잭션 안에서 호출하면 호출한 쪽 커밋까지 lock 유지
+    long bulkAgePlus(MemberSearchCondition condition, int delta);
+    long bulkDeleteBy(MemberSearchCondition condition);
 }
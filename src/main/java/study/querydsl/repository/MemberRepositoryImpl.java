@@ -1,57 +1,145 @@
 package study.querydsl.repository;
 
 import com.querydsl.core.QueryResults;
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Predicate;
 import com.querydsl.core.types.dsl.BooleanExpression;
 import com.querydsl.jpa.JPQLQuery;
 import com.querydsl.jpa.JPQLQueryFactory;
+import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import jakarta.persistence.EntityManager;
+import org.hibernate.Hibernate;
+import org.hibernate.engine.spi.PersistenceContext;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.jpa.HibernateHints;
+import org.hibernate.jpa.SpecHints;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.CursorPage;
+import study.querydsl.dto.MemberColumns;
+import study.querydsl.dto.MemberDto;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.QMemberDto;
 import study.querydsl.dto.QMemberTeamDto;
+import study.querydsl.dto.TeamStatsDto;
 import study.querydsl.entity.Member;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.BiFunction;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.springframework.util.StringUtils.hasText;
 import static study.querydsl.entity.QMember.member;
 import static study.querydsl.entity.QTeam.team;
+import static study.querydsl.entity.QTeamStats.teamStats;
 
 public class MemberRepositoryImpl implements MemberRepositoryCustom {
 
+    private static final int COLUMNS_FETCH_SIZE = 1000;
+    private static final double NARROW_AGE_SELECTIVITY = 0.1;
+
+    private final EntityManager em;
     private final JPQLQueryFactory queryFactory;
+    private final MemberCountCache countCache;
+    private final MemberSearchPlanCache planCache;
+    private final TeamStatsUpdater teamStatsUpdater;
+    private final MemberPagePrefetcher pagePrefetcher;
+    private final MemberUsernameIndex usernameIndex;
+    private final MemberReadModel readModel;
+    private final MemberAgeHistogram ageHistogram;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final AsyncTaskExecutor countExecutor;
+    private final int bulkChunkSize;
 
-    public MemberRepositoryImpl(EntityManager em) {
+    //countExecutor = 스프링 부트 기본 applicationTaskExecutor
+    //JDK 21 + spring.threads.virtual.enabled=true 이면 가상 스레드로 실행된다
+    public MemberRepositoryImpl(EntityManager em, MemberCountCache countCache, MemberSearchPlanCache planCache,
+                                TeamStatsUpdater teamStatsUpdater, MemberPagePrefetcher pagePrefetcher,
+                                MemberUsernameIndex usernameIndex, MemberReadModel readModel,
+                                MemberAgeHistogram ageHistogram,
+                                PlatformTransactionManager transactionManager,
+                                @Qualifier("applicationTaskExecutor") AsyncTaskExecutor countExecutor,
+                                @Value("${member.bulk.chunk-size:1000}") int bulkChunkSize) {
+        this.em = em;
         this.queryFactory = new JPAQueryFactory(em);
+        this.countCache = countCache;
+        this.planCache = planCache;
+        this.teamStatsUpdater = teamStatsUpdater;
+        this.pagePrefetcher = pagePrefetcher;
+        this.usernameIndex = usernameIndex;
+        this.readModel = readModel;
+        this.ageHistogram = ageHistogram;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.countExecutor = countExecutor;
+        this.bulkChunkSize = bulkChunkSize;
     }
 
+    //MemberJpaRepository.search와 같은 쿼리지만 조건 모양별로 미리 만들어둔 JPQL에 값만 바인딩해서 실행
+    //member.read-model.enabled=true 이면 메모리 읽기 모델(MemberReadModel)에서 DB 없이 찾는다
     @Override
     public List<MemberTeamDto> search(MemberSearchCondition condition) {
+        Optional<List<MemberTeamDto>> fromReadModel = readModel.search(condition);
+        if (fromReadModel.isPresent()) {
+            return fromReadModel.get();
+        }
+        return planCache.search(em, condition, usernameIds(condition));
+    }
 
-        return queryFactory
-                .select(new QMemberTeamDto(
-                        member.id.as("memberId"),
-                        member.username,
-                        member.age,
-                        team.id.as("teamId"),
-                        team.name.as("teamName")
-                ))
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(usernameEq(condition.getUserName()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe()))
-                .fetch();
+    @Override
+    public MemberColumns fetchColumns(MemberSearchCondition condition) {
+        return planCache.fetchColumns(em, condition, usernameIds(condition), COLUMNS_FETCH_SIZE);
     }
 
+    //v2, v3 페이지 조회는 미리 읽어둔 페이지가 있으면 그대로 돌려주고, 응답한 뒤 다음 페이지를 미리 읽는다
     @Override
     public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
-        QueryResults<MemberTeamDto> result = queryFactory
+        return prefetchedOrFetch(condition, pageable, this::fetchPageSimple);
+    }
+
+    @Override
+    public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
+        return prefetchedOrFetch(condition, pageable, this::fetchPageComplex);
+    }
+
+    //미리 읽은 페이지를 돌려줄 때도 그 다음 페이지를 읽어둔다 -> 순서대로 넘기는 클라이언트는 두번째 페이지부터 매번 히트
+    private Page<MemberTeamDto> prefetchedOrFetch(MemberSearchCondition condition, Pageable pageable,
+                                                  BiFunction<MemberSearchCondition, Pageable, Page<MemberTeamDto>> fetch) {
+        Page<MemberTeamDto> page = pagePrefetcher.get(condition, pageable)
+                .orElseGet(() -> fetch.apply(condition, pageable));
+        pagePrefetcher.prefetchNext(condition, page, this::prefetchPageContent);
+        return page;
+    }
+
+    //미리 읽기 스레드에서 실행, 자기 EntityManager + 읽기 전용 트랜잭션
+    private List<MemberTeamDto> prefetchPageContent(MemberSearchCondition condition, Pageable pageable) {
+        return readOnlyTransactionTemplate.execute(status -> searchPageContent(condition, pageable));
+    }
+
+    private Page<MemberTeamDto> fetchPageSimple(MemberSearchCondition condition, Pageable pageable) {
+        JPQLQuery<MemberTeamDto> query = queryFactory
                 .select(new QMemberTeamDto(
                         member.id.as("memberId"),
                         member.username,
@@ -59,9 +147,10 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom {
                         team.id.as("teamId"),
                         team.name.as("teamName")
                 ))
-                .from(member)
-                .leftJoin(member.team, team)
+                .from(member);
+        QueryResults<MemberTeamDto> result = joinTeamIfNeeded(query, condition, true)
                 .where(usernameEq(condition.getUserName()),
+                        usernameMatches(condition),
                         teamNameEq(condition.getTeamName()),
                         ageGoe(condition.getAgeGoe()),
                         ageLoe(condition.getAgeLoe()))
@@ -75,27 +164,10 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom {
         return new PageImpl<>(content, pageable, total);
     }
 
-    @Override
-    public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
-        List<MemberTeamDto> content = queryFactory
-                .select(new QMemberTeamDto(
-                        member.id.as("memberId"),
-                        member.username,
-                        member.age,
-                        team.id.as("teamId"),
-                        team.name.as("teamName")
-                ))
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(
-                        usernameEq(condition.getUserName()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                )
-                .offset(pageable.getOffset())
-                .limit(pageable.getPageSize())
-                .fetch();
+    private Page<MemberTeamDto> fetchPageComplex(MemberSearchCondition condition, Pageable pageable) {
+        //회원명 인덱스 조회는 한 번만 -> 컨텐츠와 카운트가 같은 id 목록을 본다
+        Predicate[] predicates = searchPredicates(condition);
+        List<MemberTeamDto> content = searchPageContent(predicates, condition, pageable.getOffset(), pageable.getPageSize());
 
         //Simple버전과 달리 토탈 카운트 쿼리를 분리
         //왜? 어떤 상황에는 조인이 필요없을 수도 있다, 만약 조회는 복잡하지만 카운트쿼리를 쉽게 짤 수 있는 경우 이렇게 분리하면 최적화에 좋음
@@ -115,25 +187,514 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom {
         //카운트 쿼리 생략가능한 경우
         //1. 페이지 시작이면서 컨텐츠 사이즈가 페이지 사이즈보다 작을 때
         //2. 마지막 페이지 일때 (offset + 컨텐츠 사이즈를 더해서 전체 사이즈 구함)
-        JPQLQuery<Member> countQuery = queryFactory
+        JPQLQuery<Long> countQuery = countQuery(predicates, condition);
+
+        //PageableExecutionUtils에서 countQuery.fetchOne()를 메서드로 호출 시 위에 카운트 쿼리가 생략가능한 경우 호출 안함
+        //같은 조건의 카운트는 캐시에서 꺼내 쓴다(페이지 이동마다 count(*)를 다시 날리지 않음)
+        //팀명/나이 조건뿐이면 나이 히스토그램이 정확한 카운트를 알고 있으므로 카운트 쿼리도 생략
+        return PageableExecutionUtils.getPage(content, pageable,
+                () -> countCache.getOrCount(condition,
+                        () -> exactCount(condition).orElseGet(countQuery::fetchOne)));
+    }
+
+    @Override
+    public Page<MemberTeamDto> searchPageApproximate(MemberSearchCondition condition, Pageable pageable) {
+        //한 건 더 읽어서 다음 페이지가 있는지 본다(카운트 없이 토탈을 추정할 때 사용)
+        Predicate[] predicates = searchPredicates(condition);
+        List<MemberTeamDto> fetched = searchPageContent(predicates, condition, pageable.getOffset(), pageable.getPageSize() + 1);
+        boolean hasNext = fetched.size() > pageable.getPageSize();
+        List<MemberTeamDto> content = hasNext ? fetched.subList(0, pageable.getPageSize()) : fetched;
+        return PageableExecutionUtils.getPage(content, pageable,
+                () -> approximateTotal(predicates, condition, pageable, content.size(), hasNext));
+    }
+
+    @Override
+    public Page<MemberTeamDto> searchPageParallel(MemberSearchCondition condition, Pageable pageable) {
+        //쓰기 트랜잭션 안이면 커밋 전 변경이 다른 커넥션(카운트 스레드)에서 안보이므로 기존처럼 순서대로 실행
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return searchPageComplex(condition, pageable);
+        }
+        //카운트가 캐시에 있거나 히스토그램으로 구할 수 있으면 스레드를 띄울 필요가 없다
+        if (countCache.getIfPresent(condition).isPresent() || exactCount(condition).isPresent()) {
+            return searchPageComplex(condition, pageable);
+        }
+
+        //카운트 쿼리는 다른 스레드에서 자기 EntityManager + 읽기 전용 트랜잭션으로 실행
+        //(요청 스레드 기준 지표/쿼리 예산에는 잡히지 않는다)
+        //조건(회원명 인덱스 id 목록 포함)은 요청 스레드에서 한 번 만들어서 두 쿼리가 같이 쓴다
+        Predicate[] predicates = searchPredicates(condition);
+        Future<Long> total = countExecutor.submit(() -> readOnlyTransactionTemplate.execute(
+                status -> countCache.getOrCount(condition, countQuery(predicates, condition)::fetchOne)));
+
+        List<MemberTeamDto> content;
+        try {
+            content = searchPageContent(predicates, condition, pageable.getOffset(), pageable.getPageSize());
+        } catch (RuntimeException e) {
+            total.cancel(false);
+            throw e;
+        }
+
+        //PageableExecutionUtils가 카운트를 생략하는 경우(첫 페이지가 덜 찼거나 마지막 페이지)에는 기다리지 않는다
+        //cancel(false)는 아직 시작 안 한 카운트만 막는다, 이미 실행 중이면 끝까지 돌고 결과는 카운트 캐시에 남는다
+        //즉 짧은/마지막 페이지에서는 searchPageComplex보다 카운트 쿼리가 한 번 더 나갈 수 있다
+        boolean[] countUsed = {false};
+        Page<MemberTeamDto> page = PageableExecutionUtils.getPage(content, pageable, () -> {
+            countUsed[0] = true;
+            return await(total);
+        });
+        if (!countUsed[0]) {
+            total.cancel(false);
+        }
+        return page;
+    }
+
+    private static long await(Future<Long> total) {
+        try {
+            return total.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("카운트 쿼리 대기 중 인터럽트", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("카운트 쿼리 실패", e.getCause());
+        }
+    }
+
+    private long approximateTotal(Predicate[] predicates, MemberSearchCondition condition, Pageable pageable,
+                                  int contentSize, boolean hasNext) {
+        //최소한 현재 페이지까지는 있다
+        long lowerBound = pageable.getOffset() + contentSize;
+
+        OptionalLong cached = countCache.getIfPresent(condition);
+        if (cached.isPresent()) {
+            return Math.max(cached.getAsLong(), lowerBound);
+        }
+
+        //첫 페이지에서만 실제 카운트를 하고 캐시에 올려둔다
+        if (pageable.getPageNumber() == 0) {
+            return countCache.getOrCount(condition,
+                    () -> exactCount(condition).orElseGet(countQuery(predicates, condition)::fetchOne));
+        }
+
+        //2..N 페이지는 카운트 쿼리 없이 다음 페이지가 있다는 정도만 알려준다, 없으면 현재 페이지까지가 전부
+        return hasNext ? lowerBound + 1 : lowerBound;
+    }
+
+    private List<MemberTeamDto> searchPageContent(MemberSearchCondition condition, Pageable pageable) {
+        return searchPageContent(searchPredicates(condition), condition, pageable.getOffset(), pageable.getPageSize());
+    }
+
+    private List<MemberTeamDto> searchPageContent(Predicate[] predicates, MemberSearchCondition condition,
+                                                  long offset, int limit) {
+        JPQLQuery<MemberTeamDto> query = queryFactory
+                .select(new QMemberTeamDto(
+                        member.id.as("memberId"),
+                        member.username,
+                        member.age,
+                        team.id.as("teamId"),
+                        team.name.as("teamName")
+                ))
+                .from(member);
+        return joinTeamIfNeeded(query, condition, true)
+                .where(predicates)
+                .offset(offset)
+                .limit(limit)
+                .fetch();
+    }
+
+    //카운트 쿼리는 팀 컬럼을 select하지 않는다
+    //member -> team은 ManyToOne left join이라 row 수를 바꾸지 못하므로 팀 조건이 없으면 조인 자체를 뺀다
+    private JPQLQuery<Long> countQuery(MemberSearchCondition condition) {
+        return countQuery(searchPredicates(condition), condition);
+    }
+
+    private JPQLQuery<Long> countQuery(Predicate[] predicates, MemberSearchCondition condition) {
+        JPQLQuery<Long> query = queryFactory
+                .select(member.count())
+                .from(member);
+        return joinTeamIfNeeded(query, condition, false)
+                .where(predicates);
+    }
+
+    //페이지 컨텐츠/카운트 쿼리 조건 - 나이 구간이 좁으면(히스토그램 기준 전체의 10% 이하) 나이 조건을 앞에 둔다
+    //DB가 조건을 적힌 순서대로 평가할 때 가장 많이 걸러내는 조건부터 보게 된다
+    //(조건을 빼지는 않는다 - 히스토그램은 커밋 후에 반영되므로 그 사이에 커밋된 row가 있을 수 있다)
+    private Predicate[] searchPredicates(MemberSearchCondition condition) {
+        Predicate[] others = {
+                usernameEq(condition.getUserName()),
+                usernameMatches(condition),
+                teamNameEq(condition.getTeamName())
+        };
+        Predicate[] ages = {ageGoe(condition.getAgeGoe()), ageLoe(condition.getAgeLoe())};
+        boolean narrowAgeRange = (condition.getAgeGoe() != null || condition.getAgeLoe() != null)
+                && ageHistogram.selectivity(null, condition.getAgeGoe(), condition.getAgeLoe())
+                        .orElse(1.0) <= NARROW_AGE_SELECTIVITY;
+        Predicate[] first = narrowAgeRange ? ages : others;
+        Predicate[] second = narrowAgeRange ? others : ages;
+        return Stream.concat(Arrays.stream(first), Arrays.stream(second)).toArray(Predicate[]::new);
+    }
+
+    //회원명 조건이 없으면 팀별 나이 히스토그램으로 정확한 카운트를 구한다(쓰기 트랜잭션 안에서는 empty)
+    private OptionalLong exactCount(MemberSearchCondition condition) {
+        if (hasText(condition.getUserName()) || hasText(condition.getUsernamePrefix())
+                || hasText(condition.getUsernameContains())) {
+            return OptionalLong.empty();
+        }
+        return ageHistogram.count(teamIds(condition), condition.getAgeGoe(), condition.getAgeLoe());
+    }
+
+    @Override
+    public long estimateCount(MemberSearchCondition condition) {
+        OptionalLong cached = countCache.getIfPresent(condition);
+        if (cached.isPresent()) {
+            return cached.getAsLong();
+        }
+        OptionalLong bound = ageHistogram.count(teamIds(condition), condition.getAgeGoe(), condition.getAgeLoe());
+        if (bound.isEmpty()) {
+            //쓰기 트랜잭션 안 - 커밋 전 변경까지 보려면 DB로
+            return countCache.getOrCount(condition, countQuery(condition)::fetchOne);
+        }
+        long estimate = bound.getAsLong();
+        //회원명 조건은 회원명 인덱스 후보 수가 상한(회원명 일치 조건은 그 값을 접두어로 본다)
+        String prefix = hasText(condition.getUserName()) ? condition.getUserName() : condition.getUsernamePrefix();
+        Optional<List<Long>> candidates = usernameIndex.lookup(prefix, condition.getUsernameContains());
+        if (candidates.isPresent()) {
+            estimate = Math.min(estimate, candidates.get().size());
+        }
+        return estimate;
+    }
+
+    //팀명 조건 -> 팀 id, 팀명 조건이 없으면 null(전체)
+    //팀 테이블은 작고 쿼리 캐시에 올라가므로 반복 호출해도 DB에 가지 않는다(team 쓰기가 있으면 자동으로 무효화)
+    private List<Long> teamIds(MemberSearchCondition condition) {
+        if (!hasText(condition.getTeamName())) {
+            return null;
+        }
+        return new JPAQuery<Void>(em)
+                .select(team.id)
+                .from(team)
+                .where(team.name.eq(condition.getTeamName()))
+                .setHint(HibernateHints.HINT_CACHEABLE, true)
+                .fetch();
+    }
+
+    @Override
+    public List<MemberDto> searchMemberDto(MemberSearchCondition condition) {
+        //MemberDto는 팀 컬럼이 필요 없으므로 팀명 조건이 있을 때만 조인
+        JPQLQuery<MemberDto> query = queryFactory
+                .select(new QMemberDto(member.username, member.age))
+                .from(member);
+        return joinTeamIfNeeded(query, condition, false)
+                .where(
+                        usernameEq(condition.getUserName()),
+                        usernameMatches(condition),
+                        teamNameEq(condition.getTeamName()),
+                        ageGoe(condition.getAgeGoe()),
+                        ageLoe(condition.getAgeLoe())
+                )
+                .fetch();
+    }
+
+    //조인 규칙
+    //1. team을 참조하는 건 teamNameEq 조건과 select 절뿐이다(usernameEq, ageGoe, ageLoe는 member 컬럼만 사용)
+    //   둘 다 team을 쓰지 않으면 left join은 결과에 영향이 없으므로 생략
+    //2. 팀명 조건이 있으면 team.name = ? 가 어차피 팀 없는 회원을 걸러내므로 inner join으로 바꾼다
+    //   left join은 DB가 조인 순서를 못 바꿔 member부터 풀스캔하지만 inner join이면 idx_team_name -> idx_member_team_age 순서로 읽는다
+    private <T> JPQLQuery<T> joinTeamIfNeeded(JPQLQuery<T> query, MemberSearchCondition condition, boolean projectionUsesTeam) {
+        if (teamNameEq(condition.getTeamName()) != null) {
+            query.join(member.team, team);
+        } else if (projectionUsesTeam) {
+            query.leftJoin(member.team, team);
+        }
+        return query;
+    }
+
+    @Override
+    public CursorPage<MemberTeamDto> searchAfter(MemberSearchCondition condition, String cursor, int size) {
+        //size + 1개를 조회해서 size - 1번째를 커서로 쓰므로 0 이하는 받을 수 없다
+        if (size < 1 || size > MAX_CURSOR_PAGE_SIZE) {
+            throw new IllegalArgumentException("size must be between 1 and " + MAX_CURSOR_PAGE_SIZE + ": " + size);
+        }
+        //offset은 앞의 row를 모두 읽고 버리기 때문에 뒤 페이지로 갈수록 느려진다
+        //마지막으로 읽은 id 다음부터 인덱스(PK)를 타고 바로 찾아가므로 몇 번째 페이지든 비용이 같다
+        Long lastMemberId = MemberCursor.decode(cursor);
+
+        //다음 페이지 존재 여부를 카운트 쿼리 없이 알기 위해 size + 1개를 조회
+        JPQLQuery<MemberTeamDto> query = queryFactory
+                .select(new QMemberTeamDto(
+                        member.id.as("memberId"),
+                        member.username,
+                        member.age,
+                        team.id.as("teamId"),
+                        team.name.as("teamName")
+                ))
+                .from(member);
+        List<MemberTeamDto> result = joinTeamIfNeeded(query, condition, true)
+                .where(
+                        memberIdGt(lastMemberId),
+                        usernameEq(condition.getUserName()),
+                        usernameMatches(condition),
+                        teamNameEq(condition.getTeamName()),
+                        ageGoe(condition.getAgeGoe()),
+                        ageLoe(condition.getAgeLoe())
+                )
+                .orderBy(member.id.asc())
+                .limit(size + 1)
+                .fetch();
+
+        if (result.size() <= size) {
+            return new CursorPage<>(result, null);
+        }
+
+        List<MemberTeamDto> content = result.subList(0, size);
+        String nextCursor = MemberCursor.encode(content.get(size - 1).getMemberId());
+        return new CursorPage<>(content, nextCursor);
+    }
+
+    @Override
+    public List<Member> findMembersWithTeams(MemberSearchCondition condition, FetchPlan fetchPlan) {
+        JPAQuery<Member> query = new JPAQuery<Void>(em)
                 .select(member)
+                .from(member);
+
+        switch (fetchPlan) {
+            case FETCH_JOIN -> {
+                //팀명 조건이 있으면 inner join (joinTeamIfNeeded 참고)
+                if (teamNameEq(condition.getTeamName()) != null) {
+                    query.join(member.team, team).fetchJoin();
+                } else {
+                    query.leftJoin(member.team, team).fetchJoin();
+                }
+            }
+            case ENTITY_GRAPH -> {
+                joinTeamIfNeeded(query, condition, false);
+                query.setHint(SpecHints.HINT_SPEC_FETCH_GRAPH, em.getEntityGraph(Member.WITH_TEAM_GRAPH));
+            }
+            case BATCH -> joinTeamIfNeeded(query, condition, false);
+        }
+
+        List<Member> members = query
+                .where(
+                        usernameEq(condition.getUserName()),
+                        usernameMatches(condition),
+                        teamNameEq(condition.getTeamName()),
+                        ageGoe(condition.getAgeGoe()),
+                        ageLoe(condition.getAgeLoe())
+                )
+                .fetch();
+
+        //첫 프록시를 초기화할 때 default_batch_fetch_size만큼의 팀이 IN 절 한 번으로 같이 로딩된다
+        if (fetchPlan == FetchPlan.BATCH) {
+            for (Member findMember : members) {
+                Hibernate.initialize(findMember.getTeam());
+            }
+        }
+        return members;
+    }
+
+    //벌크 연산
+    //1. 조건에 맞는 회원 id를 id 순서로 bulkChunkSize개씩 끊어서 조회
+    //2. 청크마다 id in (...) 으로 update/delete -> 한 문장이 잡는 row lock 범위와 시간이 짧다
+    //3. 영속성 컨텍스트 전체를 clear 하지 않고 이번에 바뀐 회원만 detach
+    //4. team_stats는 이번 청크 회원이 속한 팀 row만 다시 계산
+    //호출한 쪽에 트랜잭션이 없으면 청크마다 따로 커밋해서 row lock을 청크 단위로만 잡는다
+    //호출한 쪽에 트랜잭션이 있으면 거기에 참여한다 - 이때 lock은 호출한 쪽 커밋까지 유지되고 청크는 문장 크기만 나눈다
+    //(청크마다 REQUIRES_NEW로 분리하면 호출한 쪽이 flush한 미커밋 변경이 안보이고, 호출한 쪽이 이미 잡은 row를 기다리며 멈춘다)
+    @Override
+    public long bulkAgePlus(MemberSearchCondition condition, int delta) {
+        long affected = forEachIdChunk(condition, ids -> {
+            long updated = queryFactory
+                    .update(member)
+                    .set(member.age, member.age.add(delta))
+                    .where(member.id.in(ids))
+                    .execute();
+            evict(ids, false);
+            return updated;
+        });
+        return affected;
+    }
+
+    @Override
+    public long bulkDeleteBy(MemberSearchCondition condition) {
+        long affected = forEachIdChunk(condition, ids -> {
+            long deleted = queryFactory
+                    .delete(member)
+                    .where(member.id.in(ids))
+                    .execute();
+            evict(ids, true);
+            //벌크 delete는 엔티티 콜백을 거치지 않으므로 회원명 인덱스에서 직접 뺀다(커밋 후 반영)
+            ids.forEach(usernameIndex::remove);
+            return deleted;
+        });
+        return affected;
+    }
+
+    @Override
+    public void reconcileTeamStats() {
+        transactionTemplate.executeWithoutResult(status -> {
+            teamStatsUpdater.reconcile();
+            //엔티티 콜백을 거치지 않은 변경이 있었으므로 나이 히스토그램도 다시 만든다
+            ageHistogram.invalidateAfterCommit();
+        });
+    }
+
+    @Override
+    public List<TeamStatsDto> findTeamStats() {
+        List<Tuple> rows = queryFactory
+                .select(team.id, team.name, teamStats.memberCount, teamStats.ageSum,
+                        teamStats.maxAge, teamStats.minAge, teamStats.boundsStale)
+                .from(teamStats)
+                .join(teamStats.team, team)
+                .where(teamStats.memberCount.gt(0L))
+                .orderBy(team.name.asc())
+                .fetch();
+
+        //회원이 빠진 팀은 최대/최소를 idx_member_team_age로 다시 구한다(팀당 인덱스 양 끝만 읽음)
+        List<Long> staleTeamIds = rows.stream()
+                .filter(row -> Boolean.TRUE.equals(row.get(teamStats.boundsStale)))
+                .map(row -> row.get(team.id))
+                .toList();
+        Map<Long, Tuple> bounds = staleTeamIds.isEmpty() ? Map.of() : queryFactory
+                .select(member.team.id, member.age.max(), member.age.min())
                 .from(member)
-                .leftJoin(member.team, team)
+                .where(member.team.id.in(staleTeamIds))
+                .groupBy(member.team.id)
+                .fetch()
+                .stream()
+                .collect(Collectors.toMap(row -> row.get(member.team.id), row -> row));
+
+        List<TeamStatsDto> result = new ArrayList<>(rows.size());
+        for (Tuple row : rows) {
+            Long teamId = row.get(team.id);
+            Integer maxAge = row.get(teamStats.maxAge);
+            Integer minAge = row.get(teamStats.minAge);
+            Tuple bound = bounds.get(teamId);
+            if (bound != null) {
+                maxAge = bound.get(member.age.max());
+                minAge = bound.get(member.age.min());
+            }
+            result.add(new TeamStatsDto(teamId, row.get(team.name), row.get(teamStats.memberCount),
+                    row.get(teamStats.ageSum), maxAge != null ? maxAge : 0, minAge != null ? minAge : 0));
+        }
+        return result;
+    }
+
+    private long forEachIdChunk(MemberSearchCondition condition, ToLongFunction<List<Long>> action) {
+        long affected = 0;
+        Long lastId = null;
+        while (true) {
+            Long afterId = lastId;
+            IdChunk chunk = transactionTemplate.execute(status -> {
+                //벌크 연산은 영속성 컨텍스트를 거치지 않으므로 쌓여있는 변경을 먼저 DB에 반영
+                em.flush();
+                List<Long> ids = idChunk(condition, afterId);
+                if (ids.isEmpty()) {
+                    return new IdChunk(ids, 0);
+                }
+                //벌크 연산은 엔티티 콜백을 거치지 않으므로 이 청크 회원이 속한 팀만 팀 통계를 다시 계산한다
+                //(delete 후에는 팀을 알 수 없으므로 먼저 조회)
+                List<Long> teamIds = queryFactory
+                        .select(member.team.id).distinct()
+                        .from(member)
+                        .where(member.id.in(ids), member.team.isNotNull())
+                        .fetch();
+                long applied = action.applyAsLong(ids);
+                teamStatsUpdater.reconcile(teamIds);
+                //청크마다 따로 커밋되므로 읽기 모델, 나이 히스토그램도 청크 트랜잭션이 끝날 때 버린다
+                //(루프가 끝난 뒤에 버리면 그 사이 다른 스레드가 이전 청크 커밋 전 데이터로 다시 만든 것이 남는다)
+                readModel.invalidateAfterCommit();
+                ageHistogram.invalidateAfterCommit();
+                return new IdChunk(ids, applied);
+            });
+
+            affected += chunk.affected();
+            if (chunk.ids().size() < bulkChunkSize) {
+                return affected;
+            }
+            lastId = chunk.ids().get(chunk.ids().size() - 1);
+        }
+    }
+
+    private List<Long> idChunk(MemberSearchCondition condition, Long afterId) {
+        JPQLQuery<Long> query = queryFactory
+                .select(member.id)
+                .from(member);
+        return joinTeamIfNeeded(query, condition, false)
                 .where(
+                        memberIdGt(afterId),
                         usernameEq(condition.getUserName()),
+                        usernameMatches(condition),
                         teamNameEq(condition.getTeamName()),
                         ageGoe(condition.getAgeGoe()),
                         ageLoe(condition.getAgeLoe())
-                );
+                )
+                .orderBy(member.id.asc())
+                .limit(bulkChunkSize)
+                .fetch();
+    }
+
+    //영속성 컨텍스트에 올라와 있는 회원 중 이번 청크에 해당하는 것만 찾아서 detach
+    //다음에 조회하면 DB에서 새로 읽어온다
+    private void evict(List<Long> ids, boolean deleted) {
+        SessionImplementor session = em.unwrap(SessionImplementor.class);
+        EntityPersister persister = session.getFactory().getRuntimeMetamodels()
+                .getMappingMetamodel()
+                .getEntityDescriptor(Member.class);
+        PersistenceContext persistenceContext = session.getPersistenceContextInternal();
 
-        //PageableExecutionUtils에서 countQuery.fetchCount()를 메서드로 호출 시 위에 카운트 쿼리가 생략가능한 경우 호출 안함
-        return PageableExecutionUtils.getPage(content, pageable, countQuery::fetchCount);
+        for (Long id : ids) {
+            Object entity = persistenceContext.getEntity(session.generateEntityKey(id, persister));
+            if (entity == null) {
+                continue;
+            }
+            Member evicted = (Member) entity;
+            //삭제된 회원은 이미 로딩된 팀의 members 컬렉션에서도 빼준다
+            if (deleted && evicted.getTeam() != null && Hibernate.isInitialized(evicted.getTeam())
+                    && Hibernate.isInitialized(evicted.getTeam().getMembers())) {
+                evicted.getTeam().getMembers().remove(evicted);
+            }
+            em.detach(evicted);
+        }
+    }
+
+    private record IdChunk(List<Long> ids, long affected) {
+    }
+
+    private BooleanExpression memberIdGt(Long lastMemberId) {
+        return lastMemberId != null ? member.id.gt(lastMemberId) : null;
     }
 
     private BooleanExpression usernameEq(String userName) {
         return hasText(userName) ? member.username.eq(userName) : null;
     }
 
+    //회원명 접두어/부분 문자열 - 회원명 인덱스(MemberUsernameIndex)에서 id를 찾아 id in (...)
+    //인덱스를 쓸 수 없으면(쓰기 트랜잭션, 후보가 너무 많음) like로 - 접두어는 idx_member_username을 탄다
+    private BooleanExpression usernameMatches(MemberSearchCondition condition) {
+        String prefix = condition.getUsernamePrefix();
+        String contains = condition.getUsernameContains();
+        if (!hasText(prefix) && !hasText(contains)) {
+            return null;
+        }
+        return usernameIndex.lookup(prefix, contains)
+                .map(ids -> member.id.in(ids))
+                .orElseGet(() -> usernameLike(prefix, contains));
+    }
+
+    //search/fetchColumns는 미리 만들어 둔 JPQL이라 인덱스에서 찾은 id 목록을 따로 넘긴다(null이면 like)
+    private List<Long> usernameIds(MemberSearchCondition condition) {
+        return usernameIndex.lookup(condition.getUsernamePrefix(), condition.getUsernameContains()).orElse(null);
+    }
+
+    private BooleanExpression usernameLike(String prefix, String contains) {
+        BooleanExpression startsWith = hasText(prefix) ? member.username.startsWith(prefix) : null;
+        BooleanExpression like = hasText(contains) ? member.username.contains(contains) : null;
+        return startsWith != null ? startsWith.and(like) : like;
+    }
+
     private BooleanExpression teamNameEq(String teamName) {
         return hasText(teamName) ? team.name.eq(teamName) : null;
     }
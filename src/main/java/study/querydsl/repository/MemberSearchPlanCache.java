@@ -0,0 +1,197 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.types.Ops;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.core.types.dsl.Param;
+import com.querydsl.jpa.HQLTemplates;
+import com.querydsl.jpa.JPQLSerializer;
+import com.querydsl.jpa.impl.JPAQuery;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.MemberColumns;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.QMemberTeamDto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+import static study.querydsl.dto.MemberSearchCondition.AGE_GOE;
+import static study.querydsl.dto.MemberSearchCondition.AGE_LOE;
+import static study.querydsl.dto.MemberSearchCondition.TEAM_NAME;
+import static study.querydsl.dto.MemberSearchCondition.USERNAME;
+import static study.querydsl.dto.MemberSearchCondition.USERNAME_CONTAINS;
+import static study.querydsl.dto.MemberSearchCondition.USERNAME_PREFIX;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+//search 쿼리의 JPQL을 조건 모양(MemberSearchCondition.shape)별로 한 번만 만들어 두는 캐시
+//조건 값은 Param으로 비워둔 채 직렬화하고, 요청마다 파라미터 값만 바인딩한다
+//Querydsl 표현식 트리 생성 + JPQL 직렬화 비용이 요청마다 반복되지 않는다
+@Component
+public class MemberSearchPlanCache {
+
+    private static final Param<String> USERNAME_PARAM = new Param<>(String.class, "userName");
+    private static final Param<String> TEAM_NAME_PARAM = new Param<>(String.class, "teamName");
+    private static final Param<Integer> AGE_GOE_PARAM = new Param<>(Integer.class, "ageGoe");
+    private static final Param<Integer> AGE_LOE_PARAM = new Param<>(Integer.class, "ageLoe");
+    private static final Param<String> USERNAME_PREFIX_PARAM = new Param<>(String.class, "usernamePrefix");
+    private static final Param<String> USERNAME_CONTAINS_PARAM = new Param<>(String.class, "usernameContains");
+    //회원명 인덱스에서 찾은 id 목록 자리, 실행할 때 실제 목록을 바인딩한다
+    //상수 컬렉션으로 두면 Querydsl이 원소 하나짜리 in을 eq로 바꿔서 자리가 사라지므로 컬렉션 Param으로 둔다
+    @SuppressWarnings("rawtypes")
+    private static final Param<List> USERNAME_IDS_PARAM = new Param<>(List.class, "usernameIds");
+    private static final char LIKE_ESCAPE = '!';
+
+    //결과 row(Object[])를 DTO로 바꿀 때만 쓴다
+    private static final QMemberTeamDto PROJECTION = new QMemberTeamDto(
+            member.id.as("memberId"),
+            member.username,
+            member.age,
+            team.id.as("teamId"),
+            team.name.as("teamName")
+    );
+
+    //[0, SHAPE_COUNT) = 회원명 접두어/부분 문자열을 like로, [SHAPE_COUNT, 2 * SHAPE_COUNT) = 회원명 인덱스의 id 목록으로
+    private final AtomicReferenceArray<CompiledSearch> plans = new AtomicReferenceArray<>(MemberSearchCondition.SHAPE_COUNT * 2);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    //usernameIds = 회원명 인덱스에서 찾은 회원 id(MemberUsernameIndex.lookup), null이면 회원명 조건은 like로
+    public List<MemberTeamDto> search(EntityManager em, MemberSearchCondition condition, List<Long> usernameIds) {
+        if (usernameIds != null && usernameIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<?> rows = createQuery(em, condition, usernameIds).getResultList();
+        List<MemberTeamDto> result = new ArrayList<>(rows.size());
+        for (Object row : rows) {
+            result.add(PROJECTION.newInstance((Object[]) row));
+        }
+        return result;
+    }
+
+    //같은 쿼리를 컬럼 배열로 - row(Object[])는 스트림으로 하나씩 읽고 바로 버리므로 결과 List가 힙에 남지 않는다
+    //트랜잭션 안에서 호출해야 한다(스트림이 JDBC 커서를 사용)
+    public MemberColumns fetchColumns(EntityManager em, MemberSearchCondition condition, List<Long> usernameIds, int fetchSize) {
+        MemberColumns.Builder columns = MemberColumns.builder(fetchSize);
+        if (usernameIds != null && usernameIds.isEmpty()) {
+            return columns.build();
+        }
+        Query query = createQuery(em, condition, usernameIds)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize);
+        try (Stream<?> rows = query.getResultStream()) {
+            rows.forEach(row -> {
+                Object[] values = (Object[]) row;
+                columns.add((Long) values[0], (String) values[1], (Integer) values[2], (Long) values[3], (String) values[4]);
+            });
+        }
+        return columns.build();
+    }
+
+    private Query createQuery(EntityManager em, MemberSearchCondition condition, List<Long> usernameIds) {
+        int shape = condition.shape();
+        boolean byIds = usernameIds != null && (shape & (USERNAME_PREFIX | USERNAME_CONTAINS)) != 0;
+        CompiledSearch plan = plan(byIds ? shape | MemberSearchCondition.SHAPE_COUNT : shape);
+
+        Query query = em.createQuery(plan.jpql());
+        List<Object> slots = plan.slots();
+        for (int i = 0; i < slots.size(); i++) {
+            query.setParameter(i + 1, bind(slots.get(i), condition, usernameIds));
+        }
+        return query;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    CompiledSearch plan(int shape) {
+        CompiledSearch plan = plans.get(shape);
+        if (plan != null) {
+            hits.increment();
+            return plan;
+        }
+        misses.increment();
+        //동시에 만들어도 결과가 같으므로 먼저 넣은 쪽을 쓴다
+        plans.compareAndSet(shape, null, compile(shape));
+        return plans.get(shape);
+    }
+
+    private CompiledSearch compile(int plan) {
+        int shape = plan % MemberSearchCondition.SHAPE_COUNT;
+        boolean byIds = plan >= MemberSearchCondition.SHAPE_COUNT;
+        //EntityManager 없이 메타데이터만 만들어서 직렬화
+        JPAQuery<MemberTeamDto> query = new JPAQuery<Void>()
+                .select(PROJECTION)
+                .from(member);
+        //팀명 조건이 있으면 inner join - DB가 team(idx_team_name)부터 읽을 수 있다
+        if ((shape & TEAM_NAME) != 0) {
+            query.join(member.team, team);
+        } else {
+            query.leftJoin(member.team, team);
+        }
+        query.where(
+                (shape & USERNAME) != 0 ? member.username.eq(USERNAME_PARAM) : null,
+                (shape & TEAM_NAME) != 0 ? team.name.eq(TEAM_NAME_PARAM) : null,
+                (shape & AGE_GOE) != 0 ? member.age.goe(AGE_GOE_PARAM) : null,
+                (shape & AGE_LOE) != 0 ? member.age.loe(AGE_LOE_PARAM) : null,
+                byIds ? Expressions.booleanOperation(Ops.IN, member.id, USERNAME_IDS_PARAM) : null,
+                !byIds && (shape & USERNAME_PREFIX) != 0 ? member.username.like(USERNAME_PREFIX_PARAM, LIKE_ESCAPE) : null,
+                !byIds && (shape & USERNAME_CONTAINS) != 0 ? member.username.like(USERNAME_CONTAINS_PARAM, LIKE_ESCAPE) : null
+        );
+
+        JPQLSerializer serializer = new JPQLSerializer(HQLTemplates.DEFAULT);
+        serializer.serialize(query.getMetadata(), false, null);
+        //getConstants()의 순서가 JPQL의 ?1, ?2 ... 순서
+        return new CompiledSearch(serializer.toString(), List.copyOf(serializer.getConstants()));
+    }
+
+    private static Object bind(Object slot, MemberSearchCondition condition, List<Long> usernameIds) {
+        if (slot == USERNAME_PARAM) {
+            return condition.getUserName();
+        }
+        if (slot == TEAM_NAME_PARAM) {
+            return condition.getTeamName();
+        }
+        if (slot == AGE_GOE_PARAM) {
+            return condition.getAgeGoe();
+        }
+        if (slot == AGE_LOE_PARAM) {
+            return condition.getAgeLoe();
+        }
+        if (slot == USERNAME_PREFIX_PARAM) {
+            return escapeLike(condition.getUsernamePrefix()) + "%";
+        }
+        if (slot == USERNAME_CONTAINS_PARAM) {
+            return "%" + escapeLike(condition.getUsernameContains()) + "%";
+        }
+        if (slot == USERNAME_IDS_PARAM) {
+            return usernameIds;
+        }
+        //Param이 아닌 상수는 그대로
+        return slot;
+    }
+
+    private static String escapeLike(String value) {
+        StringBuilder escaped = new StringBuilder(value.length());
+        for (char c : value.toCharArray()) {
+            if (c == LIKE_ESCAPE || c == '%' || c == '_') {
+                escaped.append(LIKE_ESCAPE);
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+
+    record CompiledSearch(String jpql, List<Object> slots) {
+    }
+}
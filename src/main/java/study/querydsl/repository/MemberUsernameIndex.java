@@ -0,0 +1,248 @@
+package study.querydsl.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import static org.springframework.util.StringUtils.hasText;
+
+//회원명 접두어/부분 문자열 검색용 메모리 인덱스
+//- 접두어: 회원명 정렬 맵(skip list)에서 [prefix, prefix + Character.MAX_VALUE) 구간만 읽는다
+//- 부분 문자열: 1~3-gram -> 회원명 역색인
+//  검색어가 3글자 이하면 그 gram의 회원명이 곧 결과, 더 길면 검색어의 3-gram 중 회원명이 가장 적은 것만 훑고 contains로 확인
+//  (1, 2-gram까지 두는 이유 - 짧은 검색어에서 회원명 전체를 훑지 않도록, 대신 역색인 항목이 회원명 길이의 약 3배)
+//like '%x%'는 DB 인덱스를 못 타서 member 풀스캔이지만 여기서는 후보 회원명 수만큼만 본다
+//결과는 회원 id 목록이고 쿼리에는 member.id in (...)으로 들어간다(MemberRepositoryImpl, MemberSearchPlanCache)
+//
+//동기화
+//- 처음 조회할 때 member 테이블에서 (id, username)을 읽어 만든다
+//- 엔티티 저장/수정/삭제는 MemberUsernameIndexListener, JDBC 적재/벌크 삭제는 호출한 쪽에서 put/remove
+//- 변경은 커밋된 뒤에 반영한다(롤백된 회원이 검색되지 않도록)
+//그래서 쓰기 트랜잭션 안에서는 자기가 쓴 회원이 인덱스에 아직 없으므로 lookup이 empty -> DB like로 찾는다
+@Component
+public class MemberUsernameIndex {
+
+    private static final int GRAM = 3;
+    private static final long[] NO_IDS = new long[0];
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final int maxIds;
+
+    private final Map<Long, String> usernameById = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<String, long[]> idsByUsername = new ConcurrentSkipListMap<>();
+    private final Map<String, Set<String>> usernamesByGram = new ConcurrentHashMap<>();
+    private volatile boolean built;
+
+    public MemberUsernameIndex(JdbcTemplate jdbcTemplate,
+                               @Value("${member.username-index.enabled:true}") boolean enabled,
+                               @Value("${member.username-index.max-ids:1000}") int maxIds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.maxIds = maxIds;
+    }
+
+    //조건(접두어, 부분 문자열 - 둘 다 있으면 AND)에 맞는 회원 id
+    //인덱스를 쓸 수 없거나 후보가 maxIds보다 많으면 empty, 호출한 쪽에서 like 조건으로 대신한다
+    public Optional<List<Long>> lookup(String prefix, String contains) {
+        if (!usable() || (!hasText(prefix) && !hasText(contains))) {
+            return Optional.empty();
+        }
+        ensureBuilt();
+
+        Collection<String> candidates;
+        if (hasText(prefix)) {
+            candidates = idsByUsername.subMap(prefix, true, prefix + Character.MAX_VALUE, false).keySet();
+        } else if (contains.length() > GRAM) {
+            candidates = smallestPosting(contains);
+        } else {
+            candidates = usernamesByGram.getOrDefault(contains, Set.of());
+            //회원명마다 id가 하나 이상이므로 회원명 수만 봐도 maxIds를 넘는지 안다
+            if (candidates.size() > maxIds) {
+                return Optional.empty();
+            }
+        }
+
+        List<Long> ids = new ArrayList<>();
+        for (String username : candidates) {
+            if (hasText(contains) && !username.contains(contains)) {
+                continue;
+            }
+            for (long id : idsByUsername.getOrDefault(username, NO_IDS)) {
+                if (ids.size() == maxIds) {
+                    return Optional.empty();
+                }
+                ids.add(id);
+            }
+        }
+        return Optional.of(ids);
+    }
+
+    public void put(Long memberId, String username) {
+        change(memberId, username);
+    }
+
+    public void remove(Long memberId) {
+        change(memberId, null);
+    }
+
+    //인덱스를 버리고 다음 조회 때 member 테이블에서 다시 만든다(엔티티를 거치지 않은 username 변경 후)
+    public synchronized void invalidate() {
+        built = false;
+        usernameById.clear();
+        idsByUsername.clear();
+        usernamesByGram.clear();
+    }
+
+    public int size() {
+        return usernameById.size();
+    }
+
+    private boolean usable() {
+        return enabled && !(TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly());
+    }
+
+    private void ensureBuilt() {
+        if (built) {
+            return;
+        }
+        synchronized (this) {
+            if (built) {
+                return;
+            }
+            //적재 중에 커밋된 변경은 이 락을 기다렸다가 적재 뒤에 반영된다
+            jdbcTemplate.query("select member_id, username from member",
+                    rs -> {
+                        index(rs.getLong(1), rs.getString(2));
+                    });
+            built = true;
+        }
+    }
+
+    private Collection<String> smallestPosting(String contains) {
+        Set<String> smallest = null;
+        for (int i = 0; i + GRAM <= contains.length(); i++) {
+            Set<String> posting = usernamesByGram.get(contains.substring(i, i + GRAM));
+            if (posting == null) {
+                return Set.of();
+            }
+            if (smallest == null || posting.size() < smallest.size()) {
+                smallest = posting;
+            }
+        }
+        return smallest;
+    }
+
+    private void change(Long memberId, String username) {
+        if (memberId == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(memberId, username);
+            return;
+        }
+        Pending pending = (Pending) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new Pending();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        pending.changes.put(memberId, username);
+    }
+
+    //인덱스를 아직 안 만들었으면 만들 때 DB에서 읽으므로 건너뛴다
+    private synchronized void apply(long memberId, String username) {
+        if (built) {
+            index(memberId, username);
+        }
+    }
+
+    //username == null 이면 삭제
+    private void index(long memberId, String username) {
+        String previous = username != null ? usernameById.put(memberId, username) : usernameById.remove(memberId);
+        if (previous != null && previous.equals(username)) {
+            return;
+        }
+        if (previous != null) {
+            unlink(previous, memberId);
+        }
+        if (username != null) {
+            link(username, memberId);
+        }
+    }
+
+    private void link(String username, long memberId) {
+        long[] ids = idsByUsername.get(username);
+        if (ids == null) {
+            idsByUsername.put(username, new long[]{memberId});
+            for (String gram : grams(username)) {
+                usernamesByGram.computeIfAbsent(gram, g -> ConcurrentHashMap.newKeySet()).add(username);
+            }
+            return;
+        }
+        long[] added = Arrays.copyOf(ids, ids.length + 1);
+        added[ids.length] = memberId;
+        idsByUsername.put(username, added);
+    }
+
+    private void unlink(String username, long memberId) {
+        long[] ids = idsByUsername.get(username);
+        if (ids == null) {
+            return;
+        }
+        long[] removed = Arrays.stream(ids).filter(id -> id != memberId).toArray();
+        if (removed.length > 0) {
+            idsByUsername.put(username, removed);
+            return;
+        }
+        idsByUsername.remove(username);
+        for (String gram : grams(username)) {
+            Set<String> posting = usernamesByGram.get(gram);
+            if (posting != null) {
+                posting.remove(username);
+                if (posting.isEmpty()) {
+                    usernamesByGram.remove(gram);
+                }
+            }
+        }
+    }
+
+    //길이 1 ~ GRAM인 모든 부분 문자열
+    private static Set<String> grams(String username) {
+        Set<String> grams = new HashSet<>();
+        for (int length = 1; length <= GRAM; length++) {
+            for (int i = 0; i + length <= username.length(); i++) {
+                grams.add(username.substring(i, i + length));
+            }
+        }
+        return grams;
+    }
+
+    //트랜잭션 동안의 변경(회원 id -> 마지막 username, 삭제는 null), 커밋되면 반영
+    private class Pending implements TransactionSynchronization {
+        private final Map<Long, String> changes = new HashMap<>();
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(MemberUsernameIndex.this);
+            if (status == STATUS_COMMITTED) {
+                changes.forEach(MemberUsernameIndex.this::apply);
+            }
+        }
+    }
+}
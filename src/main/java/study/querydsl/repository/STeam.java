@@ -0,0 +1,28 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.types.dsl.NumberPath;
+import com.querydsl.core.types.dsl.StringPath;
+import com.querydsl.sql.ColumnMetadata;
+import com.querydsl.sql.PrimaryKey;
+import com.querydsl.sql.RelationalPathBase;
+
+import java.sql.Types;
+
+import static com.querydsl.core.types.PathMetadataFactory.forVariable;
+
+//Querydsl SQL용 team 테이블 메타데이터 (MemberReactiveRepository), SMember 참고
+public class STeam extends RelationalPathBase<STeam> {
+
+    public static final STeam team = new STeam("t");
+
+    public final NumberPath<Long> id = createNumber("id", Long.class);
+    public final StringPath name = createString("name");
+
+    public final PrimaryKey<STeam> primary = createPrimaryKey(id);
+
+    public STeam(String variable) {
+        super(STeam.class, forVariable(variable), "PUBLIC", "team");
+        addMetadata(id, ColumnMetadata.named("id").withIndex(1).ofType(Types.BIGINT).notNull());
+        addMetadata(name, ColumnMetadata.named("name").withIndex(2).ofType(Types.VARCHAR).withSize(255));
+    }
+}
@@ -0,0 +1,169 @@
+package study.querydsl.repository;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.action.spi.BeforeTransactionCompletionProcess;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+//team_stats 갱신
+//트랜잭션 동안 팀별 증감분(회원 수, 나이 합, 추가된 나이의 최대/최소)을 모아뒀다가 커밋 직전에 팀당 update 한 번으로 반영
+//회원 1000명을 한 팀에 저장해도 team_stats update는 한 번이고, 롤백되면 아무것도 하지 않는다
+//같은 팀 통계 row를 동시에 갱신하는 트랜잭션은 커밋 직전 짧은 구간만 row lock으로 줄을 선다
+@Component
+public class TeamStatsUpdater {
+
+    private static final String UPDATE_WITH_ADDS = "update team_stats set member_count = member_count + ?, age_sum = age_sum + ?,"
+            + " max_age = greatest(coalesce(max_age, ?), ?), min_age = least(coalesce(min_age, ?), ?),"
+            + " bounds_stale = bounds_stale or ? where team_id = ?";
+    private static final String UPDATE_REMOVES_ONLY = "update team_stats set member_count = member_count + ?, age_sum = age_sum + ?,"
+            + " bounds_stale = true where team_id = ?";
+    private static final String INSERT = "insert into team_stats (team_id, member_count, age_sum, max_age, min_age, bounds_stale)"
+            + " values (?, ?, ?, ?, ?, ?)";
+    private static final String RECONCILE = "insert into team_stats (team_id, member_count, age_sum, max_age, min_age, bounds_stale)"
+            + " select team_id, count(*), sum(age), max(age), min(age), false from member where team_id is not null group by team_id";
+    private static final String RECONCILE_TEAMS = "insert into team_stats (team_id, member_count, age_sum, max_age, min_age, bounds_stale)"
+            + " select team_id, count(*), sum(age), max(age), min(age), false from member where team_id in (%s) group by team_id";
+
+    private final EntityManager em;
+    private final JdbcTemplate jdbcTemplate;
+
+    public TeamStatsUpdater(EntityManager em, JdbcTemplate jdbcTemplate) {
+        this.em = em;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void add(Long teamId, int age) {
+        if (teamId != null) {
+            pending().computeIfAbsent(teamId, id -> new Delta()).add(age);
+        }
+    }
+
+    public void remove(Long teamId, int age) {
+        if (teamId != null) {
+            pending().computeIfAbsent(teamId, id -> new Delta()).remove(age);
+        }
+    }
+
+    //member 테이블에서 전체를 다시 계산(벌크 연산, JDBC 적재 후), 트랜잭션 안에서 호출
+    public void reconcile() {
+        em.flush();
+        //flush로 모인 증감분은 아래 재계산에 이미 들어가므로 버린다
+        Pending pending = (Pending) TransactionSynchronizationManager.getResource(this);
+        if (pending != null) {
+            pending.deltas.clear();
+        }
+        jdbcTemplate.update("delete from team_stats");
+        jdbcTemplate.update(RECONCILE);
+    }
+
+    //teamIds 팀만 member 테이블에서 다시 계산(벌크 연산 청크), 트랜잭션 안에서 호출
+    //다른 팀의 team_stats row는 건드리지 않으므로 lock도 이 팀들 row에만 걸린다
+    public void reconcile(Collection<Long> teamIds) {
+        if (teamIds.isEmpty()) {
+            return;
+        }
+        em.flush();
+        //이 팀들의 증감분은 아래 재계산에 이미 들어가므로 버린다, 다른 팀 증감분은 커밋 직전에 그대로 반영
+        Pending pending = (Pending) TransactionSynchronizationManager.getResource(this);
+        if (pending != null) {
+            pending.deltas.keySet().removeAll(teamIds);
+        }
+        Object[] args = teamIds.toArray();
+        String placeholders = String.join(", ", Collections.nCopies(args.length, "?"));
+        jdbcTemplate.update("delete from team_stats where team_id in (" + placeholders + ")", args);
+        jdbcTemplate.update(RECONCILE_TEAMS.formatted(placeholders), args);
+    }
+
+    private Map<Long, Delta> pending() {
+        //트랜잭션 밖에서는 엔티티 변경이 flush 되지 않으므로 여기 올 일이 없다, 오더라도 reconcile로 맞춘다
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return new HashMap<>();
+        }
+        Pending pending = (Pending) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new Pending();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+            em.unwrap(SessionImplementor.class).getActionQueue().registerProcess(pending);
+        }
+        return pending.deltas;
+    }
+
+    private void apply(Map<Long, Delta> deltas) {
+        deltas.forEach((teamId, delta) -> {
+            if (delta.isEmpty()) {
+                return;
+            }
+            if (update(teamId, delta) == 0) {
+                try {
+                    jdbcTemplate.update(INSERT, teamId, delta.count, delta.ageSum,
+                            delta.maxAdded, delta.minAdded, delta.removed);
+                } catch (DuplicateKeyException e) {
+                    //다른 트랜잭션이 먼저 row를 만들었으면 update로
+                    update(teamId, delta);
+                }
+            }
+        });
+        deltas.clear();
+    }
+
+    private int update(Long teamId, Delta delta) {
+        if (delta.maxAdded == null) {
+            return jdbcTemplate.update(UPDATE_REMOVES_ONLY, delta.count, delta.ageSum, teamId);
+        }
+        return jdbcTemplate.update(UPDATE_WITH_ADDS, delta.count, delta.ageSum,
+                delta.maxAdded, delta.maxAdded, delta.minAdded, delta.minAdded, delta.removed, teamId);
+    }
+
+    //커밋 직전 반영은 Hibernate 쪽 콜백(BeforeTransactionCompletionProcess)으로 한다
+    //스프링 beforeCommit은 커밋 시점 flush보다 먼저 불려서 그때 나가는 insert/update 증감분을 놓친다
+    //Hibernate는 커밋 직전 flush -> 등록된 process 순서로 실행하므로 모든 변경이 모인 뒤에 반영된다
+    private class Pending implements TransactionSynchronization, BeforeTransactionCompletionProcess {
+
+        private final Map<Long, Delta> deltas = new HashMap<>();
+
+        @Override
+        public void doBeforeTransactionCompletion(SessionImplementor session) {
+            apply(deltas);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(TeamStatsUpdater.this);
+        }
+    }
+
+    private static class Delta {
+        private long count;
+        private long ageSum;
+        private Integer maxAdded;
+        private Integer minAdded;
+        private boolean removed;
+
+        void add(int age) {
+            count++;
+            ageSum += age;
+            maxAdded = maxAdded == null ? age : Math.max(maxAdded, age);
+            minAdded = minAdded == null ? age : Math.min(minAdded, age);
+        }
+
+        void remove(int age) {
+            count--;
+            ageSum -= age;
+            removed = true;
+        }
+
+        boolean isEmpty() {
+            return count == 0 && ageSum == 0 && maxAdded == null && !removed;
+        }
+    }
+}
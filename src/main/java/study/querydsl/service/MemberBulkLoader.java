@@ -0,0 +1,162 @@
+package study.querydsl.service;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.Cache;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberAgeHistogram;
+import study.querydsl.repository.MemberReadModel;
+import study.querydsl.repository.MemberUsernameIndex;
+import study.querydsl.repository.TeamStatsUpdater;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+//대량 회원 적재
+//em.persist를 한 건씩 쌓아두면 영속성 컨텍스트가 계속 커지고 flush 때 한 번에 몰린다
+//N건마다 flush 하고 저장한 회원만 detach 해서 메모리를 일정하게 유지하고, insert는 hibernate.jdbc.batch_size 단위로 묶여서 나간다
+@Service
+public class MemberBulkLoader {
+
+    //적재할 회원 한 건, 팀은 id로만 받는다(팀이 없으면 null)
+    //Member 생성자(changeTeam)로 만들어 넘기면 같은 Team 객체의 members 컬렉션에 적재한 회원이 전부 쌓인다
+    public record NewMember(String username, int age, Long teamId) {
+    }
+
+    //multi-row insert 한 문장에 넣는 row 수 = 시퀀스 한 번에 받는 id 블록 크기
+    private static final int ROWS_PER_INSERT = Member.ID_ALLOCATION_SIZE;
+
+    private final EntityManager em;
+    private final JdbcTemplate jdbcTemplate;
+    private final TeamStatsUpdater teamStatsUpdater;
+    private final MemberUsernameIndex usernameIndex;
+    private final MemberReadModel readModel;
+    private final MemberAgeHistogram ageHistogram;
+    private final int flushSize;
+
+    public MemberBulkLoader(EntityManager em, JdbcTemplate jdbcTemplate, TeamStatsUpdater teamStatsUpdater,
+                            MemberUsernameIndex usernameIndex, MemberReadModel readModel, MemberAgeHistogram ageHistogram,
+                            @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:100}") int flushSize) {
+        this.em = em;
+        this.jdbcTemplate = jdbcTemplate;
+        this.teamStatsUpdater = teamStatsUpdater;
+        this.usernameIndex = usernameIndex;
+        this.readModel = readModel;
+        this.ageHistogram = ageHistogram;
+        this.flushSize = flushSize;
+    }
+
+    //JPA 경로 - 엔티티 콜백, 캐시 무효화 등 엔티티 저장과 동일하게 동작
+    //팀은 프록시(getReference)로 연결만 하고 team.members 컬렉션에는 넣지 않는다
+    //호출한 쪽이 들고 있는 Team 객체의 members에는 적재한 회원이 보이지 않으므로 필요하면 다시 조회
+    @Transactional
+    public long load(Stream<NewMember> members) {
+        long count = 0;
+        List<Member> chunk = new ArrayList<>(flushSize);
+        Iterator<NewMember> iterator = members.iterator();
+        while (iterator.hasNext()) {
+            NewMember newMember = iterator.next();
+            Member member = new Member(newMember.username(), newMember.age());
+            if (newMember.teamId() != null) {
+                member.setTeam(em.getReference(Team.class, newMember.teamId()));
+            }
+            em.persist(member);
+            chunk.add(member);
+            count++;
+            if (chunk.size() == flushSize) {
+                flushAndDetach(chunk);
+            }
+        }
+        flushAndDetach(chunk);
+        //컬렉션을 거치지 않고 회원을 넣었으므로 2차 캐시에 남은 팀별 회원 목록을 버린다
+        evictTeamMembers();
+        return count;
+    }
+
+    //em.clear()는 호출한 쪽의 엔티티(팀 등)까지 준영속으로 만들어서 이후 지연 로딩/변경 감지가 안된다
+    //이번에 저장한 회원만 영속성 컨텍스트에서 뺀다
+    private void flushAndDetach(List<Member> chunk) {
+        em.flush();
+        chunk.forEach(em::detach);
+        chunk.clear();
+    }
+
+    private void evictTeamMembers() {
+        em.getEntityManagerFactory().getCache().unwrap(Cache.class)
+                .evictCollectionData(Team.class.getName() + ".members");
+    }
+
+    //JDBC 경로 - 엔티티를 거치지 않고 multi-row insert 한 문장에 ROWS_PER_INSERT건씩 넣는다
+    //id는 시퀀스에서 블록 단위로 직접 받아서 Hibernate(pooled-lo)가 발급하는 id와 겹치지 않는다
+    //teamId는 이미 저장된 팀의 id여야 한다
+    @Transactional
+    public long loadWithJdbc(Stream<NewMember> members) {
+        //아직 flush 안 된 엔티티가 있으면 먼저 내보낸다
+        em.flush();
+
+        String nextIdSql = nextIdBlockSql();
+        String fullInsertSql = insertSql(ROWS_PER_INSERT);
+
+        long count = 0;
+        List<NewMember> chunk = new ArrayList<>(ROWS_PER_INSERT);
+        Iterator<NewMember> iterator = members.iterator();
+        while (iterator.hasNext()) {
+            chunk.add(iterator.next());
+            if (chunk.size() == ROWS_PER_INSERT) {
+                count += insertChunk(nextIdSql, fullInsertSql, chunk);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            count += insertChunk(nextIdSql, insertSql(chunk.size()), chunk);
+        }
+
+        //JDBC로 직접 넣은 건 Hibernate가 모르므로 캐시된 쿼리 결과(findByUsername 등)와 팀별 회원 목록을 버린다
+        em.getEntityManagerFactory().getCache().unwrap(Cache.class).evictQueryRegions();
+        evictTeamMembers();
+        //search 읽기 모델도 다음 조회 때 다시 만든다
+        readModel.invalidateAfterCommit();
+        return count;
+    }
+
+    private int insertChunk(String nextIdSql, String insertSql, List<NewMember> chunk) {
+        Long firstId = jdbcTemplate.queryForObject(nextIdSql, Long.class);
+
+        Object[] args = new Object[chunk.size() * 4];
+        for (int i = 0; i < chunk.size(); i++) {
+            NewMember member = chunk.get(i);
+            args[i * 4] = firstId + i;
+            args[i * 4 + 1] = member.username();
+            args[i * 4 + 2] = member.age();
+            args[i * 4 + 3] = member.teamId();
+            //엔티티 콜백을 거치지 않으므로 팀 통계 증감분은 직접 넘긴다(커밋 직전에 팀당 한 번 반영)
+            teamStatsUpdater.add(member.teamId(), member.age());
+            ageHistogram.add(member.teamId(), member.age());
+            //회원명 인덱스도 마찬가지(커밋 후 반영)
+            usernameIndex.put(firstId + i, member.username());
+        }
+        return jdbcTemplate.update(insertSql, args);
+    }
+
+    private String nextIdBlockSql() {
+        SessionFactoryImplementor sessionFactory = em.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class);
+        return sessionFactory.getJdbcServices().getDialect()
+                .getSequenceSupport()
+                .getSequenceNextValString(Member.ID_SEQUENCE);
+    }
+
+    private static String insertSql(int rows) {
+        StringBuilder sql = new StringBuilder("insert into member (member_id, username, age, team_id) values ");
+        for (int i = 0; i < rows; i++) {
+            sql.append(i == 0 ? "(?, ?, ?, ?)" : ", (?, ?, ?, ?)");
+        }
+        return sql.toString();
+    }
+}
@@ -0,0 +1,87 @@
+package study.querydsl.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberJpaRepository;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+//검색 결과를 한 줄씩 바로 응답에 써서 내보낸다
+//결과 전체를 메모리에 올리지 않으므로 결과 건수와 상관없이 메모리 사용량이 일정하다
+@Service
+@RequiredArgsConstructor
+public class MemberExportService {
+
+    private static final int FETCH_SIZE = 500;
+    //이 건수마다 응답 버퍼를 내보내고 영속성 컨텍스트를 비운다
+    private static final int FLUSH_INTERVAL = 1000;
+
+    private final MemberJpaRepository memberJpaRepository;
+    private final EntityManager em;
+    private final ObjectMapper objectMapper;
+
+    @Transactional(readOnly = true)
+    public long export(MemberSearchCondition condition, ExportFormat format, Writer writer) throws IOException {
+        if (format == ExportFormat.CSV) {
+            writer.write("memberId,username,age,teamId,teamName\n");
+        }
+
+        long count = 0;
+        try (Stream<MemberTeamDto> rows = memberJpaRepository.searchStream(condition, FETCH_SIZE)) {
+            Iterator<MemberTeamDto> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                MemberTeamDto row = iterator.next();
+                writer.write(format == ExportFormat.CSV ? toCsv(row) : objectMapper.writeValueAsString(row));
+                writer.write('\n');
+
+                if (++count % FLUSH_INTERVAL == 0) {
+                    writer.flush();
+                    em.clear();
+                }
+            }
+        }
+        writer.flush();
+        return count;
+    }
+
+    private String toCsv(MemberTeamDto row) {
+        return row.getMemberId() + ","
+                + csvValue(row.getUsername()) + ","
+                + row.getAge() + ","
+                + (row.getTeamId() != null ? row.getTeamId() : "") + ","
+                + csvValue(row.getTeamName());
+    }
+
+    private String csvValue(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+        return value;
+    }
+
+    public enum ExportFormat {
+        NDJSON("application/x-ndjson"),
+        CSV("text/csv");
+
+        private final String contentType;
+
+        ExportFormat(String contentType) {
+            this.contentType = contentType;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+    }
+}
@@ -0,0 +1,370 @@
+package study.querydsl.service;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+//회원 수정/저장 write-behind 버퍼
+//요청마다 트랜잭션을 여는 대신 버퍼에 넣고 window마다 한 트랜잭션으로 모아서 반영한다
+//- 같은 회원에 대한 수정은 버퍼에 있는 동안 하나로 합친다(필드별로 마지막 값)
+//- 반영은 JPA로 한다: id in (...) 조회 한 번 + 변경 감지 update를 hibernate.jdbc.batch_size로 묶어서 전송
+//  (2차 캐시, TeamStats, 카운트 캐시 무효화가 일반 저장과 똑같이 동작)
+//- 버퍼에 대기하는 회원 수는 maxPending까지, 다 차면 호출한 쪽이 offerTimeout까지 기다리고(백프레셔) 그래도 자리가 없으면 거절
+//- 배치 트랜잭션이 실패하면 한 건씩 다시 반영해서 실패한 요청만 실패로 돌려준다
+//- 종료 시 남은 변경을 모두 반영한다
+//기존 동기 API(MemberJpaRepository.save, 엔티티 변경 감지)는 그대로이고, 여기는 몰려드는 수정을 위한 별도 경로
+@Slf4j
+@Service
+public class MemberWriteBehind {
+
+    private final EntityManager em;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final long offerTimeoutNanos;
+
+    private final ConcurrentHashMap<Long, PendingUpdate> updates = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<PendingInsert> inserts = new ConcurrentLinkedQueue<>();
+    private final Semaphore capacity;
+    private final ScheduledExecutorService flusher;
+    //버퍼에 넣는 쪽은 read lock, 종료(closed = true)는 write lock
+    //종료 후 남은 변경을 비울 때 closed 확인을 통과한 채 아직 넣는 중인 요청이 없도록 한다
+    private final ReentrantReadWriteLock closeLock = new ReentrantReadWriteLock();
+    private volatile boolean closed;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder written = new LongAdder();
+
+    public MemberWriteBehind(EntityManager em, PlatformTransactionManager transactionManager,
+                             @Value("${member.write-behind.window:50ms}") Duration window,
+                             @Value("${member.write-behind.max-pending:10000}") int maxPending,
+                             @Value("${member.write-behind.offer-timeout:1s}") Duration offerTimeout,
+                             @Value("${member.write-behind.batch-size:500}") int batchSize) {
+        this.em = em;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.offerTimeoutNanos = offerTimeout.toNanos();
+        this.capacity = new Semaphore(maxPending);
+        //반영은 스레드 하나에서만 -> 같은 회원의 변경이 들어온 순서대로 반영된다
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "member-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long windowNanos = window.toNanos();
+        flusher.scheduleWithFixedDelay(this::flushQuietly, windowNanos, windowNanos, TimeUnit.NANOSECONDS);
+    }
+
+    //null인 필드는 바꾸지 않는다
+    public record Update(String username, Integer age) {
+    }
+
+    public CompletableFuture<Void> updateAsync(Long memberId, Update update) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        boolean permit = false;
+        while (true) {
+            //1 = 기존 대기분에 합침, 2 = 새로 추가, 0 = 자리 필요, -1 = 종료됨
+            int outcome = enqueueUpdate(memberId, update, future, permit);
+            if (outcome == -1) {
+                releaseIf(permit);
+                return CompletableFuture.failedFuture(new RejectedExecutionException("write-behind buffer is closed"));
+            }
+            if (outcome == 1) {
+                releaseIf(permit);
+                submitted.increment();
+                coalesced.increment();
+                return future;
+            }
+            if (outcome == 2) {
+                submitted.increment();
+                return future;
+            }
+            //새 회원이 들어갈 자리가 필요하다(기다리는 동안은 lock을 잡지 않는다)
+            permit = acquire();
+            if (!permit) {
+                return CompletableFuture.failedFuture(new RejectedExecutionException("write-behind buffer is full"));
+            }
+        }
+    }
+
+    private int enqueueUpdate(Long memberId, Update update, CompletableFuture<Void> future, boolean hasPermit) {
+        Lock lock = closeLock.readLock();
+        lock.lock();
+        try {
+            if (closed) {
+                return -1;
+            }
+            int[] outcome = {0};
+            updates.compute(memberId, (id, existing) -> {
+                if (existing != null) {
+                    existing.merge(update, future);
+                    outcome[0] = 1;
+                    return existing;
+                }
+                if (hasPermit) {
+                    outcome[0] = 2;
+                    return new PendingUpdate(memberId, update, future);
+                }
+                return null;
+            });
+            if (outcome[0] == 2) {
+                flushEarlyIfFull();
+            }
+            return outcome[0];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //동기 버전 - 반영될 때까지 기다린다(그 사이 들어온 다른 수정과 같은 배치로 나간다)
+    public void update(Long memberId, Update update) {
+        updateAsync(memberId, update).join();
+    }
+
+    //저장(insert)도 모아서 한 트랜잭션에서 persist -> insert 배치, 반영되면 id를 돌려준다
+    //팀은 id로 받아서 반영할 때 프록시(getReference)로 연결한다, 이미 저장된 팀이어야 한다(팀이 없으면 null)
+    public CompletableFuture<Long> saveAsync(String username, int age, Long teamId) {
+        if (closed) {
+            return CompletableFuture.failedFuture(new RejectedExecutionException("write-behind buffer is closed"));
+        }
+        if (!acquire()) {
+            return CompletableFuture.failedFuture(new RejectedExecutionException("write-behind buffer is full"));
+        }
+        PendingInsert insert = new PendingInsert(username, age, teamId, new CompletableFuture<>());
+        Lock lock = closeLock.readLock();
+        lock.lock();
+        try {
+            if (closed) {
+                capacity.release();
+                return CompletableFuture.failedFuture(new RejectedExecutionException("write-behind buffer is closed"));
+            }
+            inserts.add(insert);
+            submitted.increment();
+            flushEarlyIfFull();
+        } finally {
+            lock.unlock();
+        }
+        return insert.future();
+    }
+
+    //지금까지 쌓인 변경을 바로 반영하고 끝날 때까지 기다린다
+    public void flush() {
+        if (closed) {
+            return;
+        }
+        CompletableFuture.runAsync(this::flushQuietly, flusher).join();
+    }
+
+    public long getSubmittedCount() {
+        return submitted.sum();
+    }
+
+    public long getCoalescedCount() {
+        return coalesced.sum();
+    }
+
+    public long getWrittenCount() {
+        return written.sum();
+    }
+
+    public int getPendingCount() {
+        return updates.size() + inserts.size();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        Lock lock = closeLock.writeLock();
+        lock.lock();
+        try {
+            closed = true;
+        } finally {
+            lock.unlock();
+        }
+        flusher.shutdown();
+        if (!flusher.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("write-behind flusher did not stop in 30s");
+        }
+        //새 요청은 더 안들어오므로 남은 것을 이 스레드에서 모두 반영
+        drainAndWrite();
+    }
+
+    private boolean acquire() {
+        try {
+            return capacity.tryAcquire(offerTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void releaseIf(boolean permit) {
+        if (permit) {
+            capacity.release();
+        }
+    }
+
+    //read lock 안에서 호출 -> closed가 아니면 flusher도 아직 살아있다
+    private void flushEarlyIfFull() {
+        if (getPendingCount() >= batchSize) {
+            flusher.execute(this::flushQuietly);
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            drainAndWrite();
+        } catch (RuntimeException e) {
+            //실패는 각 future로 전달되었으므로 스케줄은 계속 돈다
+            log.warn("write-behind flush failed", e);
+        }
+    }
+
+    private void drainAndWrite() {
+        while (!updates.isEmpty() || !inserts.isEmpty()) {
+            List<PendingUpdate> updateBatch = new ArrayList<>();
+            Iterator<Long> ids = updates.keySet().iterator();
+            while (ids.hasNext() && updateBatch.size() < batchSize) {
+                PendingUpdate pending = updates.remove(ids.next());
+                if (pending != null) {
+                    capacity.release();
+                    updateBatch.add(pending);
+                }
+            }
+            List<PendingInsert> insertBatch = new ArrayList<>();
+            PendingInsert insert;
+            while (updateBatch.size() + insertBatch.size() < batchSize && (insert = inserts.poll()) != null) {
+                capacity.release();
+                insertBatch.add(insert);
+            }
+            write(updateBatch, insertBatch);
+        }
+    }
+
+    private void write(List<PendingUpdate> updateBatch, List<PendingInsert> insertBatch) {
+        try {
+            writeBatch(updateBatch, insertBatch);
+        } catch (RuntimeException e) {
+            if (updateBatch.size() + insertBatch.size() == 1) {
+                log.warn("write-behind write failed", e);
+                updateBatch.forEach(pending -> pending.fail(e));
+                insertBatch.forEach(pending -> pending.future().completeExceptionally(e));
+                return;
+            }
+            //한 건 때문에 같은 배치의 다른 요청까지 실패하지 않도록 한 건씩 다시 반영
+            log.debug("write-behind batch failed, retrying one by one", e);
+            updateBatch.forEach(pending -> write(List.of(pending), List.of()));
+            insertBatch.forEach(pending -> write(List.of(), List.of(pending)));
+        }
+    }
+
+    private void writeBatch(List<PendingUpdate> updateBatch, List<PendingInsert> insertBatch) {
+        Map<Long, PendingUpdate> byId = new HashMap<>();
+        for (PendingUpdate pending : updateBatch) {
+            pending.found = false;
+            byId.put(pending.memberId, pending);
+        }
+        List<Member> saved = new ArrayList<>(insertBatch.size());
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!byId.isEmpty()) {
+                List<Member> members = em.createQuery("select m from Member m where m.id in :ids", Member.class)
+                        .setParameter("ids", byId.keySet())
+                        .getResultList();
+                for (Member member : members) {
+                    byId.get(member.getId()).applyTo(member);
+                }
+            }
+            //Member 생성자(changeTeam)는 team.members 컬렉션을 초기화하므로 팀은 setTeam으로만 연결
+            for (PendingInsert pending : insertBatch) {
+                Member member = new Member(pending.username(), pending.age());
+                if (pending.teamId() != null) {
+                    member.setTeam(em.getReference(Team.class, pending.teamId()));
+                }
+                em.persist(member);
+                saved.add(member);
+            }
+        });
+
+        for (PendingUpdate pending : updateBatch) {
+            if (pending.found) {
+                written.increment();
+                pending.complete();
+            } else {
+                pending.fail(new EntityNotFoundException("member not found: " + pending.memberId));
+            }
+        }
+        for (int i = 0; i < insertBatch.size(); i++) {
+            written.increment();
+            insertBatch.get(i).future().complete(saved.get(i).getId());
+        }
+    }
+
+    //버퍼에 있는 동안 compute 안에서만 바뀌고, 꺼낸 뒤(remove)에는 flusher 스레드만 본다
+    private static class PendingUpdate {
+        private final Long memberId;
+        private String username;
+        private Integer age;
+        private final List<CompletableFuture<Void>> futures = new ArrayList<>(1);
+        private boolean found;
+
+        PendingUpdate(Long memberId, Update update, CompletableFuture<Void> future) {
+            this.memberId = memberId;
+            merge(update, future);
+        }
+
+        void merge(Update update, CompletableFuture<Void> future) {
+            if (update.username() != null) {
+                username = update.username();
+            }
+            if (update.age() != null) {
+                age = update.age();
+            }
+            futures.add(future);
+        }
+
+        void applyTo(Member member) {
+            found = true;
+            if (username != null) {
+                member.setUsername(username);
+            }
+            if (age != null) {
+                member.setAge(age);
+            }
+        }
+
+        void complete() {
+            futures.forEach(future -> future.complete(null));
+        }
+
+        void fail(Throwable e) {
+            futures.forEach(future -> future.completeExceptionally(e));
+        }
+    }
+
+    private record PendingInsert(String username, int age, Long teamId, CompletableFuture<Long> future) {
+    }
+}
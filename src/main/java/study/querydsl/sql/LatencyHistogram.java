@@ -0,0 +1,81 @@
+package study.querydsl.sql;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+//고정 구간 지연시간 히스토그램 (락 없이 여러 스레드에서 기록)
+//백분위는 해당 구간의 상한값으로 근사한다
+public class LatencyHistogram {
+
+    private static final long[] BOUNDS_MILLIS = {1, 2, 5, 10, 25, 50, 100, 250, 500, 1000, 2500};
+
+    private final LongAdder[] buckets = new LongAdder[BOUNDS_MILLIS.length + 1];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Long::max, 0);
+
+    public LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long nanos) {
+        long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+        int bucket = 0;
+        while (bucket < BOUNDS_MILLIS.length && millis >= BOUNDS_MILLIS[bucket]) {
+            bucket++;
+        }
+        buckets[bucket].increment();
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public Map<String, Object> snapshot() {
+        long[] counts = new long[buckets.length];
+        long total = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            counts[i] = buckets[i].sum();
+            total += counts[i];
+        }
+
+        Map<String, Object> histogram = new LinkedHashMap<>();
+        for (int i = 0; i < counts.length; i++) {
+            histogram.put(i < BOUNDS_MILLIS.length ? "<" + BOUNDS_MILLIS[i] + "ms" : ">=" + BOUNDS_MILLIS[BOUNDS_MILLIS.length - 1] + "ms", counts[i]);
+        }
+
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("count", total);
+        snapshot.put("avgMs", total == 0 ? 0.0 : totalNanos.sum() / (double) total / 1_000_000);
+        snapshot.put("maxMs", maxNanos.get() / 1_000_000.0);
+        snapshot.put("p50Ms", percentile(counts, total, 0.50));
+        snapshot.put("p95Ms", percentile(counts, total, 0.95));
+        snapshot.put("p99Ms", percentile(counts, total, 0.99));
+        snapshot.put("histogram", histogram);
+        return snapshot;
+    }
+
+    //마지막 구간은 상한이 없으므로 최대값으로 대신한다
+    private double percentile(long[] counts, long total, double percentile) {
+        if (total == 0) {
+            return 0.0;
+        }
+        long rank = (long) Math.ceil(total * percentile);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return i < BOUNDS_MILLIS.length ? BOUNDS_MILLIS[i] : maxNanos.get() / 1_000_000.0;
+            }
+        }
+        return maxNanos.get() / 1_000_000.0;
+    }
+}
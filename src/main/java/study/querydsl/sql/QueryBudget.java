@@ -0,0 +1,16 @@
+package study.querydsl.sql;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+//컨트롤러 메서드 한 번 호출(요청 하나)에서 허용하는 SQL 문장 수
+//넘으면 member.query-budget.enforce=true(테스트)일 때 요청 실패, false(운영)일 때 warn 로그
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface QueryBudget {
+    int max();
+}
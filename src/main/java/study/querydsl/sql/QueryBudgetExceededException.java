@@ -0,0 +1,8 @@
+package study.querydsl.sql;
+
+public class QueryBudgetExceededException extends RuntimeException {
+
+    public QueryBudgetExceededException(String handler, int max, int used, String sql) {
+        super(handler + " 쿼리 예산 초과: 최대 " + max + "번, " + used + "번째 SQL = " + sql);
+    }
+}
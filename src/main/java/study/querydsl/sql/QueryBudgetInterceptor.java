@@ -0,0 +1,41 @@
+package study.querydsl.sql;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+//@QueryBudget이 붙은 핸들러 호출 동안 쿼리 예산을 건다
+@Slf4j
+@Component
+public class QueryBudgetInterceptor implements HandlerInterceptor {
+
+    private final boolean enforce;
+
+    public QueryBudgetInterceptor(@Value("${member.query-budget.enforce:false}") boolean enforce) {
+        this.enforce = enforce;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (handler instanceof HandlerMethod handlerMethod) {
+            QueryBudget queryBudget = handlerMethod.getMethodAnnotation(QueryBudget.class);
+            if (queryBudget != null) {
+                QueryBudgetListener.open(handlerMethod.getShortLogMessage(), queryBudget.max(), enforce);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        QueryBudgetListener.Budget budget = QueryBudgetListener.close();
+        if (budget != null && budget.isExceeded() && !enforce) {
+            log.warn("query budget exceeded: {} {} used {} statements (max {})",
+                    request.getRequestURI(), budget.getHandler(), budget.getUsed(), budget.getMax());
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package study.querydsl.sql;
+
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import org.springframework.stereotype.Component;
+
+//요청 스레드에 걸린 쿼리 예산을 SQL 실행 직전에 확인한다
+//강제 모드면 예산을 넘는 SQL은 실행하지 않고 바로 예외
+@Component
+public class QueryBudgetListener extends SimpleJdbcEventListener {
+
+    private static final ThreadLocal<Budget> CURRENT = new ThreadLocal<>();
+
+    public static Budget open(String handler, int max, boolean enforce) {
+        Budget budget = new Budget(handler, max, enforce);
+        CURRENT.set(budget);
+        return budget;
+    }
+
+    public static Budget close() {
+        Budget budget = CURRENT.get();
+        CURRENT.remove();
+        return budget;
+    }
+
+    @Override
+    public void onBeforeAnyExecute(StatementInformation statementInformation) {
+        Budget budget = CURRENT.get();
+        if (budget == null) {
+            return;
+        }
+        budget.used++;
+        if (budget.enforce && budget.isExceeded()) {
+            throw new QueryBudgetExceededException(budget.handler, budget.max, budget.used, statementInformation.getSql());
+        }
+    }
+
+    public static final class Budget {
+
+        private final String handler;
+        private final int max;
+        private final boolean enforce;
+        private int used;
+
+        private Budget(String handler, int max, boolean enforce) {
+            this.handler = handler;
+            this.max = max;
+            this.enforce = enforce;
+        }
+
+        public String getHandler() {
+            return handler;
+        }
+
+        public int getMax() {
+            return max;
+        }
+
+        public int getUsed() {
+            return used;
+        }
+
+        public boolean isExceeded() {
+            return used > max;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package study.querydsl.sql;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+//SQL 실행 지표 저장소
+//- 전체 문장 지연시간 히스토그램, 읽은 row 수
+//- 요청(엔드포인트)별, 검색 조건 모양별 문장 수/row 수/SQL 시간
+//- 임계값을 넘은 느린 쿼리(바인딩 값 포함) 최근 N건
+@Slf4j
+@Component
+public class SqlMetrics {
+
+    private static final ThreadLocal<RequestContext> CURRENT = new ThreadLocal<>();
+
+    private final long slowQueryThresholdNanos;
+    private final int slowQueryLogSize;
+
+    private final LatencyHistogram statements = new LatencyHistogram();
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final ConcurrentMap<String, RequestStats> endpoints = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, RequestStats> shapes = new ConcurrentHashMap<>();
+    private final Deque<SlowQuery> slowQueries = new ArrayDeque<>();
+
+    public SqlMetrics(@Value("${member.sql-metrics.slow-query-threshold:200ms}") Duration slowQueryThreshold,
+                      @Value("${member.sql-metrics.slow-query-log-size:100}") int slowQueryLogSize) {
+        this.slowQueryThresholdNanos = slowQueryThreshold.toNanos();
+        this.slowQueryLogSize = slowQueryLogSize;
+    }
+
+    //현재 스레드에서 진행 중인 요청, 없으면 null
+    public static RequestContext currentRequest() {
+        return CURRENT.get();
+    }
+
+    public RequestContext beginRequest(String endpoint, String shape) {
+        RequestContext context = new RequestContext(endpoint, shape);
+        CURRENT.set(context);
+        return context;
+    }
+
+    public void endRequest(RequestContext context, long elapsedNanos) {
+        CURRENT.remove();
+        endpoints.computeIfAbsent(context.getEndpoint(), key -> new RequestStats()).record(context, elapsedNanos);
+        if (context.getShape() != null) {
+            shapes.computeIfAbsent(context.getShape(), key -> new RequestStats()).record(context, elapsedNanos);
+        }
+    }
+
+    void recordStatement(long elapsedNanos, boolean failed, Supplier<String> sqlWithValues) {
+        statements.record(elapsedNanos);
+        if (failed) {
+            failures.increment();
+        }
+
+        RequestContext context = CURRENT.get();
+        if (context != null) {
+            context.statements++;
+            context.sqlNanos += elapsedNanos;
+        }
+
+        if (elapsedNanos >= slowQueryThresholdNanos) {
+            recordSlowQuery(context, elapsedNanos, sqlWithValues.get());
+        }
+    }
+
+    void recordRow() {
+        rows.increment();
+        RequestContext context = CURRENT.get();
+        if (context != null) {
+            context.rows++;
+        }
+    }
+
+    private void recordSlowQuery(RequestContext context, long elapsedNanos, String sql) {
+        SlowQuery slowQuery = new SlowQuery(LocalDateTime.now(),
+                context != null ? context.getEndpoint() : null,
+                context != null ? context.getShape() : null,
+                elapsedNanos / 1_000_000.0,
+                sql);
+        log.warn("slow query {}ms endpoint={} shape={} sql={}",
+                slowQuery.elapsedMs(), slowQuery.endpoint(), slowQuery.shape(), slowQuery.sql());
+
+        synchronized (slowQueries) {
+            slowQueries.addFirst(slowQuery);
+            while (slowQueries.size() > slowQueryLogSize) {
+                slowQueries.removeLast();
+            }
+        }
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("statements", statements.snapshot());
+        snapshot.put("rows", rows.sum());
+        snapshot.put("failures", failures.sum());
+        snapshot.put("endpoints", snapshot(endpoints));
+        snapshot.put("conditionShapes", snapshot(shapes));
+        synchronized (slowQueries) {
+            snapshot.put("slowQueries", new ArrayList<>(slowQueries));
+        }
+        return snapshot;
+    }
+
+    private Map<String, Object> snapshot(Map<String, RequestStats> stats) {
+        Map<String, Object> result = new TreeMap<>();
+        stats.forEach((key, value) -> result.put(key, value.snapshot()));
+        return result;
+    }
+
+    public static class RequestContext {
+
+        private final String endpoint;
+        private final String shape;
+        private int statements;
+        private long rows;
+        private long sqlNanos;
+
+        private RequestContext(String endpoint, String shape) {
+            this.endpoint = endpoint;
+            this.shape = shape;
+        }
+
+        public String getEndpoint() {
+            return endpoint;
+        }
+
+        public String getShape() {
+            return shape;
+        }
+
+        public int getStatements() {
+            return statements;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+    }
+
+    private static class RequestStats {
+
+        private final LatencyHistogram requestTime = new LatencyHistogram();
+        private final LatencyHistogram sqlTime = new LatencyHistogram();
+        private final LongAdder statements = new LongAdder();
+        private final LongAccumulator maxStatements = new LongAccumulator(Long::max, 0);
+        private final LongAdder rows = new LongAdder();
+
+        void record(RequestContext context, long elapsedNanos) {
+            requestTime.record(elapsedNanos);
+            sqlTime.record(context.sqlNanos);
+            statements.add(context.statements);
+            maxStatements.accumulate(context.statements);
+            rows.add(context.rows);
+        }
+
+        Map<String, Object> snapshot() {
+            long requests = requestTime.getCount();
+            Map<String, Object> snapshot = new LinkedHashMap<>();
+            snapshot.put("requests", requests);
+            snapshot.put("statements", statements.sum());
+            snapshot.put("avgStatementsPerRequest", requests == 0 ? 0.0 : statements.sum() / (double) requests);
+            snapshot.put("maxStatementsPerRequest", maxStatements.get());
+            snapshot.put("rows", rows.sum());
+            snapshot.put("requestTime", requestTime.snapshot());
+            snapshot.put("sqlTime", sqlTime.snapshot());
+            return snapshot;
+        }
+    }
+
+    public record SlowQuery(LocalDateTime at, String endpoint, String shape, double elapsedMs, String sql) {
+    }
+}
@@ -0,0 +1,80 @@
+package study.querydsl.sql;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import study.querydsl.dto.MemberSearchCondition;
+
+import java.io.IOException;
+import java.util.StringJoiner;
+import java.util.regex.Pattern;
+
+import static org.springframework.util.StringUtils.hasText;
+
+//회원 검색 요청(/v1/members, /v2/members, /v3/members ...) 단위로 SQL 지표를 모은다
+//검색 조건 모양(어떤 조건이 들어왔는지)별로도 따로 집계
+@Component
+@RequiredArgsConstructor
+public class SqlMetricsFilter extends OncePerRequestFilter {
+
+    private static final Pattern MEMBER_SEARCH = Pattern.compile("^/v\\d+/members$");
+
+    private final SqlMetrics sqlMetrics;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !MEMBER_SEARCH.matcher(request.getRequestURI()).matches();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        SqlMetrics.RequestContext context = sqlMetrics.beginRequest(
+                request.getMethod() + " " + request.getRequestURI(), shapeOf(request));
+        long start = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            sqlMetrics.endRequest(context, System.nanoTime() - start);
+        }
+    }
+
+    //MemberSearchCondition 필드명 기준, 예) "teamName+ageGoe", 조건이 없으면 "none"
+    static String shapeOf(HttpServletRequest request) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUserName(request.getParameter("userName"));
+        condition.setTeamName(request.getParameter("teamName"));
+        condition.setAgeGoe(hasText(request.getParameter("ageGoe")) ? 0 : null);
+        condition.setAgeLoe(hasText(request.getParameter("ageLoe")) ? 0 : null);
+        condition.setUsernamePrefix(request.getParameter("usernamePrefix"));
+        condition.setUsernameContains(request.getParameter("usernameContains"));
+        return shapeName(condition.shape());
+    }
+
+    public static String shapeName(int shape) {
+        StringJoiner name = new StringJoiner("+");
+        if ((shape & MemberSearchCondition.USERNAME) != 0) {
+            name.add("userName");
+        }
+        if ((shape & MemberSearchCondition.TEAM_NAME) != 0) {
+            name.add("teamName");
+        }
+        if ((shape & MemberSearchCondition.AGE_GOE) != 0) {
+            name.add("ageGoe");
+        }
+        if ((shape & MemberSearchCondition.AGE_LOE) != 0) {
+            name.add("ageLoe");
+        }
+        if ((shape & MemberSearchCondition.USERNAME_PREFIX) != 0) {
+            name.add("usernamePrefix");
+        }
+        if ((shape & MemberSearchCondition.USERNAME_CONTAINS) != 0) {
+            name.add("usernameContains");
+        }
+        return name.length() == 0 ? "none" : name.toString();
+    }
+}
@@ -0,0 +1,30 @@
+package study.querydsl.sql;
+
+import com.p6spy.engine.common.ResultSetInformation;
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+
+//p6spy 이벤트를 SqlMetrics로 넘긴다
+@Component
+@RequiredArgsConstructor
+public class SqlMetricsListener extends SimpleJdbcEventListener {
+
+    private final SqlMetrics sqlMetrics;
+
+    @Override
+    public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        //바인딩 값이 들어간 SQL은 느린 쿼리일 때만 만든다
+        sqlMetrics.recordStatement(timeElapsedNanos, e != null, statementInformation::getSqlWithValues);
+    }
+
+    @Override
+    public void onAfterResultSetNext(ResultSetInformation resultSetInformation, long timeElapsedNanos, boolean hasNext, SQLException e) {
+        if (hasNext) {
+            sqlMetrics.recordRow();
+        }
+    }
+}
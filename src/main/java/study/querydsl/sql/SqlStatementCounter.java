@@ -0,0 +1,57 @@
+package study.querydsl.sql;
+
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+
+//현재 스레드에서 실제로 DB에 나간 SQL 문장 수를 센다(p6spy)
+//JDBC 배치는 executeBatch 한 번을 한 문장으로 센다
+//
+//try (SqlStatementCounter.Counter counter = SqlStatementCounter.start()) {
+//    ...
+//    assertThat(counter.getCount()).isEqualTo(2);
+//}
+@Component
+public class SqlStatementCounter extends SimpleJdbcEventListener {
+
+    private static final ThreadLocal<Counter> CURRENT = new ThreadLocal<>();
+
+    public static Counter start() {
+        Counter counter = new Counter(CURRENT.get());
+        CURRENT.set(counter);
+        return counter;
+    }
+
+    @Override
+    public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        //중첩된 카운터도 같이 센다
+        for (Counter counter = CURRENT.get(); counter != null; counter = counter.parent) {
+            counter.count++;
+        }
+    }
+
+    public static final class Counter implements AutoCloseable {
+
+        private final Counter parent;
+        private int count;
+
+        private Counter(Counter parent) {
+            this.parent = parent;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        @Override
+        public void close() {
+            if (parent == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(parent);
+            }
+        }
+    }
+}
@@ -17,9 +17,12 @@ import study.querydsl.dto.UserDto;
 import study.querydsl.entity.Member;
 import study.querydsl.entity.QMember;
 import study.querydsl.entity.Team;
+import study.querydsl.projection.CachedProjections;
 
 import java.util.List;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static study.querydsl.entity.QMember.member;
 
 @SpringBootTest
@@ -204,4 +207,64 @@ public class QuerydslMiddleTest {
             System.out.println("memberDto" + memberDto);
         }
     }
+
+//    ----------------------------------------------------------------------------------------------------------------------------------------------
+    //캐시된 프로젝션 - Projections와 사용법은 같고 DTO 생성은 캐시된 MethodHandle로 한다
+    @Test
+    public void findDtoByCachedBean() {
+        List<MemberDto> result = query
+                .select(CachedProjections.bean(MemberDto.class,
+                        member.username,
+                        member.age))
+                .from(member)
+                .orderBy(member.username.asc())
+                .fetch();
+
+        assertThat(result).extracting("username", "age")
+                .containsExactly(tuple("member1", 10), tuple("member2", 20), tuple("member3", 30), tuple("member4", 40));
+    }
+
+    @Test
+    public void findUserDtoByCachedFields() {
+        QMember memberSub = new QMember("memberSub");
+
+        List<UserDto> result = query
+                .select(CachedProjections.fields(UserDto.class,
+                        member.username.as("name"),
+                        ExpressionUtils.as(JPAExpressions
+                                .select(memberSub.age.max())
+                                .from(memberSub), "age")
+                ))
+                .from(member)
+                .orderBy(member.username.asc())
+                .fetch();
+
+        assertThat(result).extracting("name", "age")
+                .containsExactly(tuple("member1", 40), tuple("member2", 40), tuple("member3", 40), tuple("member4", 40));
+    }
+
+    @Test
+    public void findUserDtoByCachedConstructor() {
+        List<UserDto> result = query
+                .select(CachedProjections.constructor(UserDto.class,
+                        member.username,
+                        member.age))
+                .from(member)
+                .orderBy(member.username.asc())
+                .fetch();
+
+        assertThat(result).extracting("name", "age")
+                .containsExactly(tuple("member1", 10), tuple("member2", 20), tuple("member3", 30), tuple("member4", 40));
+    }
+
+    @Test
+    public void cachedProjectionReusesMapper() {
+        query.select(CachedProjections.constructor(MemberDto.class, member.username, member.age)).from(member).fetch();
+        int mappers = CachedProjections.cachedMapperCount();
+
+        query.select(CachedProjections.constructor(MemberDto.class, member.username, member.age)).from(member).fetch();
+
+        //같은 (DTO 클래스, 인자 타입)이면 매퍼를 새로 만들지 않는다
+        assertThat(CachedProjections.cachedMapperCount()).isEqualTo(mappers);
+    }
 }
@@ -0,0 +1,80 @@
+package study.querydsl.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//H2 메모리 DB 두 개로 프라이머리/레플리카를 흉내낸다, 각 DB의 node 테이블에 자기 이름이 들어있음
+class ReplicaRoutingDataSourceTest {
+
+    DataSource primary;
+    DataSource replica;
+
+    @BeforeEach
+    public void before() {
+        primary = h2("routing_primary", "primary");
+        replica = h2("routing_replica", "replica");
+    }
+
+    @Test
+    public void readOnlyTransactionGoesToReplica() {
+        DataSource routing = routing(new ReplicaLagMonitor(replica, "select lag from lag", Duration.ofSeconds(1), Duration.ZERO));
+
+        assertThat(nodeIn(routing, true)).isEqualTo("replica");
+        assertThat(nodeIn(routing, false)).isEqualTo("primary");
+        //트랜잭션 밖은 프라이머리
+        assertThat(new JdbcTemplate(routing).queryForObject("select name from node", String.class)).isEqualTo("primary");
+    }
+
+    @Test
+    public void laggingReplicaFallsBackToPrimary() {
+        DataSource routing = routing(new ReplicaLagMonitor(replica, "select lag from lag", Duration.ofSeconds(1), Duration.ZERO));
+
+        new JdbcTemplate(replica).update("update lag set lag = 5000");
+        assertThat(nodeIn(routing, true)).isEqualTo("primary");
+
+        new JdbcTemplate(replica).update("update lag set lag = 10");
+        assertThat(nodeIn(routing, true)).isEqualTo("replica");
+    }
+
+    @Test
+    public void unreachableReplicaFallsBackToPrimary() {
+        DataSource down = new DriverManagerDataSource("jdbc:h2:tcp://localhost:1/~/routing_down", "sa", "");
+        ReplicaLagMonitor monitor = new ReplicaLagMonitor(down, null, Duration.ofSeconds(1), Duration.ZERO);
+        DataSource routing = new LazyConnectionDataSourceProxy(new ReplicaRoutingDataSource(primary, down, monitor));
+
+        assertThat(nodeIn(routing, true)).isEqualTo("primary");
+        assertThat(monitor.isReplicaUsable()).isFalse();
+    }
+
+    private DataSource routing(ReplicaLagMonitor monitor) {
+        return new LazyConnectionDataSourceProxy(new ReplicaRoutingDataSource(primary, replica, monitor));
+    }
+
+    private String nodeIn(DataSource routing, boolean readOnly) {
+        TransactionTemplate tx = new TransactionTemplate(new DataSourceTransactionManager(routing));
+        tx.setReadOnly(readOnly);
+        return tx.execute(status -> new JdbcTemplate(routing).queryForObject("select name from node", String.class));
+    }
+
+    private static DataSource h2(String db, String name) {
+        DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + db + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("drop table if exists node");
+        jdbc.execute("drop table if exists lag");
+        jdbc.execute("create table node (name varchar(20))");
+        jdbc.execute("create table lag (lag bigint)");
+        jdbc.update("insert into node values (?)", name);
+        jdbc.update("insert into lag values (0)");
+        return dataSource;
+    }
+}
@@ -0,0 +1,204 @@
+package study.querydsl.controller;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberCountCache;
+import study.querydsl.sql.SqlStatementCounter;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.not;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+class MemberControllerTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberCountCache countCache;
+
+    @Autowired
+    MutableClock clock;
+
+    @BeforeEach
+    public void before() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+        em.flush();
+        //준비 데이터를 쓴 초가 지난 것으로 - Last-Modified를 내보낸다
+        clock.advanceSeconds(1);
+    }
+
+    @Test
+    public void sqlMetricsPerRequest() throws Exception {
+        mockMvc.perform(get("/v3/members").param("teamName", "teamB").param("ageGoe", "35"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].username").value("member4"));
+
+        //지표는 애플리케이션 전체에서 누적되므로 값 대신 집계 항목이 생겼는지만 확인
+        mockMvc.perform(get("/metrics/sql"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.endpoints['GET /v3/members'].requests").isNumber())
+                .andExpect(jsonPath("$.endpoints['GET /v3/members'].maxStatementsPerRequest").isNumber())
+                .andExpect(jsonPath("$.conditionShapes['teamName+ageGoe'].rows").isNumber());
+    }
+
+    @Test
+    public void searchMemberV3UsesContentAndCountQuery() throws Exception {
+        countCache.invalidateAll();
+
+        try (SqlStatementCounter.Counter counter = SqlStatementCounter.start()) {
+            mockMvc.perform(get("/v3/members").param("page", "0").param("size", "2"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.totalElements").value(4));
+            assertThat(counter.getCount()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    public void searchMemberV3SkipsCountQuery() throws Exception {
+        countCache.invalidateAll();
+
+        //첫 페이지인데 컨텐츠가 페이지 크기보다 작으면 PageableExecutionUtils가 카운트 쿼리를 생략
+        try (SqlStatementCounter.Counter counter = SqlStatementCounter.start()) {
+            mockMvc.perform(get("/v3/members").param("page", "0").param("size", "10"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.totalElements").value(4));
+            assertThat(counter.getCount()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    public void searchMemberV4InvalidCursor() throws Exception {
+        mockMvc.perform(get("/v4/members").param("cursor", "not-a-cursor!"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.status").value(400));
+    }
+
+    @Test
+    public void searchMemberV3NotModified() throws Exception {
+        String etag = mockMvc.perform(get("/v3/members").param("teamName", "teamA").param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(etag).isNotNull();
+
+        //같은 조건, 같은 테이블 버전이면 쿼리 없이 304
+        try (SqlStatementCounter.Counter counter = SqlStatementCounter.start()) {
+            mockMvc.perform(get("/v3/members").param("teamName", "teamA").param("size", "1")
+                            .header(HttpHeaders.IF_NONE_MATCH, etag))
+                    .andExpect(status().isNotModified());
+            assertThat(counter.getCount()).isZero();
+        }
+
+        //다른 페이지는 다른 ETag
+        mockMvc.perform(get("/v3/members").param("teamName", "teamA").param("size", "1").param("page", "1")
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+
+        //회원이 추가되면 버전이 올라가서 다시 조회
+        em.persist(new Member("member5", 50));
+        em.flush();
+        mockMvc.perform(get("/v3/members").param("teamName", "teamA").param("size", "1")
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, not(etag)));
+    }
+
+    @Test
+    public void searchMemberV2IfModifiedSince() throws Exception {
+        //방금 쓴 초 안에서는 Last-Modified 없이 ETag만 내보낸다
+        em.persist(new Member("member5", 50));
+        em.flush();
+        mockMvc.perform(get("/v2/members").param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.LAST_MODIFIED))
+                .andExpect(header().exists(HttpHeaders.ETAG));
+
+        //그 초가 지나면 Last-Modified로 비교한다
+        clock.advanceSeconds(1);
+        String lastModified = mockMvc.perform(get("/v2/members").param("size", "2"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.LAST_MODIFIED);
+        assertThat(lastModified).isNotNull();
+        mockMvc.perform(get("/v2/members").param("size", "2").header(HttpHeaders.IF_MODIFIED_SINCE, lastModified))
+                .andExpect(status().isNotModified());
+
+        //새 쓰기가 있으면 같은 초 안이라 If-Modified-Since를 건너뛰고 다시 조회한다
+        em.persist(new Member("member6", 60));
+        em.flush();
+        mockMvc.perform(get("/v2/members").param("size", "2").header(HttpHeaders.IF_MODIFIED_SINCE, lastModified))
+                .andExpect(status().isOk());
+    }
+
+    //TableVersion이 쓰는 시각, 초 경계를 기다리지 않고 테스트에서 옮긴다
+    @TestConfiguration
+    static class ClockConfig {
+        @Bean
+        MutableClock clock() {
+            return new MutableClock(Instant.parse("2024-01-01T00:00:00.500Z"));
+        }
+    }
+
+    static class MutableClock extends Clock {
+
+        private final AtomicReference<Instant> now;
+
+        MutableClock(Instant now) {
+            this.now = new AtomicReference<>(now);
+        }
+
+        void advanceSeconds(long seconds) {
+            now.updateAndGet(instant -> instant.plusSeconds(seconds));
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return now.get();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package study.querydsl.repository;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//히스토그램은 커밋된 변경만 반영하므로 커밋하면서 테스트한다
+@SpringBootTest
+@Import(SqlCaptor.class)
+class MemberAgeHistogramTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberCountCache countCache;
+
+    @Autowired
+    MemberAgeHistogram histogram;
+
+    @Autowired
+    SqlCaptor sqlCaptor;
+
+    TransactionTemplate tx;
+    Long teamAId;
+
+    @BeforeEach
+    public void before() {
+        tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> {
+            Team teamA = new Team("histTeamA");
+            Team teamB = new Team("histTeamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            for (int age = 10; age <= 50; age += 10) {
+                em.persist(new Member("histMember" + age, age, teamA));
+            }
+            em.persist(new Member("histMemberB", 40, teamB));
+            teamAId = teamA.getId();
+        });
+        countCache.invalidateAll();
+    }
+
+    @AfterEach
+    public void after() {
+        tx.executeWithoutResult(status -> {
+            em.createQuery("delete from Member m where m.username like 'histMember%'").executeUpdate();
+            em.createQuery("delete from Team t where t.name like 'histTeam%'").executeUpdate();
+        });
+        memberRepository.reconcileTeamStats();
+        countCache.invalidateAll();
+    }
+
+    @Test
+    public void pageCountFromHistogram() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("histTeamA");
+        condition.setAgeGoe(20);
+        condition.setAgeLoe(40);
+
+        sqlCaptor.clear();
+        Page<MemberTeamDto> page = memberRepository.searchPageComplex(condition, PageRequest.of(0, 2));
+
+        assertThat(page.getTotalElements()).isEqualTo(3);
+        //컨텐츠 쿼리만 나가고 카운트 쿼리는 생략
+        assertThat(sqlCaptor.statements()).noneMatch(sql -> sql.contains("count("));
+    }
+
+    @Test
+    public void estimateCountFollowsCommittedChanges() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("histTeamA");
+        condition.setAgeGoe(25);
+        assertThat(memberRepository.estimateCount(condition)).isEqualTo(3);
+
+        tx.executeWithoutResult(status -> em.persist(new Member("histMember60", 60, em.find(Team.class, teamAId))));
+        assertThat(memberRepository.estimateCount(condition)).isEqualTo(4);
+
+        //롤백된 변경은 반영되지 않는다
+        tx.executeWithoutResult(status -> {
+            em.persist(new Member("histMember70", 70, em.find(Team.class, teamAId)));
+            em.flush();
+            status.setRollbackOnly();
+        });
+        assertThat(memberRepository.estimateCount(condition)).isEqualTo(4);
+
+        //회원명 조건은 회원명 인덱스 후보 수가 상한
+        MemberSearchCondition byName = new MemberSearchCondition();
+        byName.setUsernamePrefix("histMemberB");
+        assertThat(memberRepository.estimateCount(byName)).isEqualTo(1);
+    }
+
+    @Test
+    public void buildSkipsWhileWritesAreInFlight() {
+        histogram.invalidate();
+        List<Long> teamA = List.of(teamAId);
+
+        //증감분을 가진 트랜잭션이 끝나기 전에는 만들지 않는다(만들면 커밋 후 증감분이 두 번 더해질 수 있다)
+        tx.executeWithoutResult(status -> {
+            em.persist(new Member("histMember60", 60, em.find(Team.class, teamAId)));
+            em.flush();
+            assertThat(CompletableFuture.supplyAsync(() -> histogram.count(teamA, null, null)).join()).isEmpty();
+        });
+        assertThat(histogram.count(teamA, null, null)).isEqualTo(OptionalLong.of(6));
+
+        //없는 (팀, 나이)를 빼면 어긋난 것이므로 버리고 DB에서 다시 만든다
+        tx.executeWithoutResult(status -> histogram.remove(teamAId, 99));
+        assertThat(histogram.count(teamA, null, null)).isEqualTo(OptionalLong.of(6));
+    }
+}
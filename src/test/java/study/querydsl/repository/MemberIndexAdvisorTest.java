@@ -0,0 +1,122 @@
+package study.querydsl.repository;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.sql.SqlMetricsFilter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.dto.MemberSearchCondition.AGE_GOE;
+import static study.querydsl.dto.MemberSearchCondition.AGE_LOE;
+import static study.querydsl.dto.MemberSearchCondition.TEAM_NAME;
+import static study.querydsl.dto.MemberSearchCondition.USERNAME;
+import static study.querydsl.dto.MemberSearchCondition.USERNAME_CONTAINS;
+import static study.querydsl.dto.MemberSearchCondition.USERNAME_PREFIX;
+
+//인덱스 어드바이저
+//MemberSearchCondition의 조건 모양마다 검색/페이징 쿼리를 실제로 실행해서 나간 SQL을 H2 EXPLAIN으로 확인
+//실행 계획에 tableScan이 있으면 어떤 모양의 어떤 쿼리인지와 계획을 모아서 실패시킨다
+//조건이 하나도 없는 모양(전체 조회)은 풀스캔이 정상이므로 제외
+//회원명 부분 문자열(like '%x%')은 DB 인덱스로 찾을 수 없어서 MemberUsernameIndex가 맡으므로 제외
+//(이 테스트는 쓰기 트랜잭션이라 회원명 조건이 like로 나간다)
+@SpringBootTest
+@Transactional
+@Import(SqlCaptor.class)
+class MemberIndexAdvisorTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberCountCache countCache;
+
+    @Autowired
+    SqlCaptor sqlCaptor;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    public void before() {
+        List<Team> teams = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Team team = new Team("team" + i);
+            em.persist(team);
+            teams.add(team);
+        }
+        for (int i = 0; i < 100; i++) {
+            em.persist(new Member("member" + i, i % 50, teams.get(i % 10)));
+        }
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    public void everyConditionShapeUsesAnIndex() {
+        List<String> tableScans = new ArrayList<>();
+
+        for (int shape = 1; shape < MemberSearchCondition.SHAPE_COUNT; shape++) {
+            if ((shape & USERNAME_CONTAINS) != 0) {
+                continue;
+            }
+            MemberSearchCondition condition = conditionOf(shape);
+            countCache.invalidateAll();
+            sqlCaptor.clear();
+
+            memberRepository.search(condition);
+            memberRepository.searchMemberDto(condition);
+            //2페이지를 조회해서 카운트 쿼리도 나가게 한다
+            memberRepository.searchPageComplex(condition, PageRequest.of(1, 2));
+
+            for (String sql : sqlCaptor.statementsWithValues()) {
+                if (!sql.toLowerCase(Locale.ROOT).startsWith("select")) {
+                    continue;
+                }
+                String plan = jdbcTemplate.queryForObject("explain " + sql, String.class);
+                if (plan.toLowerCase(Locale.ROOT).contains("tablescan")) {
+                    tableScans.add("[" + SqlMetricsFilter.shapeName(shape) + "] " + plan);
+                }
+            }
+        }
+
+        assertThat(tableScans)
+                .as("풀스캔하는 쿼리가 있음 - 조건 컬럼으로 시작하는 인덱스를 Member/Team @Table(indexes)에 추가")
+                .isEmpty();
+    }
+
+    private static MemberSearchCondition conditionOf(int shape) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        if ((shape & USERNAME) != 0) {
+            condition.setUserName("member15");
+        }
+        if ((shape & TEAM_NAME) != 0) {
+            condition.setTeamName("team5");
+        }
+        if ((shape & AGE_GOE) != 0) {
+            condition.setAgeGoe(10);
+        }
+        if ((shape & AGE_LOE) != 0) {
+            condition.setAgeLoe(20);
+        }
+        if ((shape & USERNAME_PREFIX) != 0) {
+            condition.setUsernamePrefix("member1");
+        }
+        return condition;
+    }
+}
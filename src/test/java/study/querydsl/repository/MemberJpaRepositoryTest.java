@@ -12,6 +12,7 @@ import study.querydsl.entity.Member;
 import study.querydsl.entity.Team;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.junit.jupiter.api.Assertions.*;
@@ -84,4 +85,25 @@ class MemberJpaRepositoryTest {
         List<MemberTeamDto> result = memberJpaRepository.search(condition);
         assertThat(result).extracting("username").containsExactly( "member4");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void searchStreamTest() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamB");
+
+        try (Stream<MemberTeamDto> result = memberJpaRepository.searchStream(condition, 2)) {
+            assertThat(result.map(MemberTeamDto::getUsername)).containsExactly("member3", "member4");
+        }
+    }
+}
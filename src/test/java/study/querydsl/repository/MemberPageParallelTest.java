@@ -0,0 +1,84 @@
+package study.querydsl.repository;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.sql.SqlStatementCounter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//searchPageParallel은 쓰기 트랜잭션 안에서는 순서대로 실행되므로 커밋하면서 테스트한다
+@SpringBootTest
+class MemberPageParallelTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberCountCache countCache;
+
+    TransactionTemplate tx;
+
+    @BeforeEach
+    public void before() {
+        tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> {
+            Team team = new Team("parallelTeam");
+            em.persist(team);
+            for (int i = 1; i <= 4; i++) {
+                em.persist(new Member("parallelMember" + i, i * 10, team));
+            }
+        });
+        countCache.invalidateAll();
+    }
+
+    @AfterEach
+    public void after() {
+        tx.executeWithoutResult(status -> {
+            em.createQuery("delete from Member m where m.username like 'parallelMember%'").executeUpdate();
+            em.createQuery("delete from Team t where t.name like 'parallelTeam%'").executeUpdate();
+        });
+        memberRepository.reconcileTeamStats();
+        countCache.invalidateAll();
+    }
+
+    @Test
+    public void countRunsOnAnotherThread() {
+        //회원명 조건이 있으면 히스토그램으로 카운트를 못 구하므로 카운트 쿼리가 필요하다
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsernamePrefix("parallelMember");
+        PageRequest pageRequest = PageRequest.of(0, 2);
+
+        //회원명 인덱스 등 지연 생성되는 구조를 먼저 만들어둔다
+        memberRepository.searchPageParallel(condition, pageRequest);
+        countCache.invalidateAll();
+
+        try (SqlStatementCounter.Counter counter = SqlStatementCounter.start()) {
+            Page<MemberTeamDto> result = memberRepository.searchPageParallel(condition, pageRequest);
+
+            assertThat(result.getContent()).extracting("username")
+                    .containsExactly("parallelMember1", "parallelMember2");
+            assertThat(result.getTotalElements()).isEqualTo(4);
+            //요청 스레드에서는 컨텐츠 쿼리만, 카운트는 countExecutor 스레드에서 나갔다
+            assertThat(counter.getCount()).isEqualTo(1);
+        }
+        assertThat(countCache.getIfPresent(condition)).hasValue(4);
+    }
+}
@@ -0,0 +1,122 @@
+package study.querydsl.repository;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//미리 읽기는 다른 스레드에서 커밋된 데이터를 읽으므로 커밋하면서 테스트한다
+@SpringBootTest(properties = "member.prefetch.enabled=true")
+@Import(SqlCaptor.class)
+class MemberPagePrefetcherTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberPagePrefetcher pagePrefetcher;
+
+    @Autowired
+    SqlCaptor sqlCaptor;
+
+    TransactionTemplate tx;
+    MemberSearchCondition condition;
+    Long teamId;
+
+    @BeforeEach
+    public void before() {
+        tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> {
+            Team team = new Team("prefetchTeam");
+            em.persist(team);
+            teamId = team.getId();
+            for (int i = 1; i <= 5; i++) {
+                em.persist(new Member("prefetchMember" + i, i * 10, team));
+            }
+        });
+        pagePrefetcher.invalidateAll();
+        condition = new MemberSearchCondition();
+        condition.setTeamName("prefetchTeam");
+    }
+
+    @AfterEach
+    public void after() {
+        tx.executeWithoutResult(status -> {
+            em.createQuery("delete from Member m where m.username like 'prefetchMember%'").executeUpdate();
+            em.createQuery("delete from Team t where t.name like 'prefetchTeam%'").executeUpdate();
+        });
+        memberRepository.reconcileTeamStats();
+    }
+
+    @Test
+    public void nextPageIsServedWithoutQuery() throws InterruptedException {
+        Page<MemberTeamDto> first = memberRepository.searchPageComplex(condition, PageRequest.of(0, 2));
+        assertThat(first.getContent()).extracting("username").containsExactly("prefetchMember1", "prefetchMember2");
+        awaitPrefetch(1);
+
+        long hitsBefore = pagePrefetcher.getHitCount();
+        sqlCaptor.clear();
+        Page<MemberTeamDto> second = memberRepository.searchPageComplex(condition, PageRequest.of(1, 2));
+
+        assertThat(second.getContent()).extracting("username").containsExactly("prefetchMember3", "prefetchMember4");
+        assertThat(second.getTotalElements()).isEqualTo(5);
+        assertThat(pagePrefetcher.getHitCount() - hitsBefore).isEqualTo(1);
+        assertThat(sqlCaptor.statements()).noneMatch(sql -> sql.startsWith("select"));
+    }
+
+    //미리 읽은 페이지를 돌려줄 때도 다음 페이지를 읽어두므로 순서대로 넘기면 두번째 페이지부터 모두 히트
+    @Test
+    public void sequentialPagesAreAllHits() throws InterruptedException {
+        memberRepository.searchPageComplex(condition, PageRequest.of(0, 1));
+        awaitPrefetch(1);
+
+        long hitsBefore = pagePrefetcher.getHitCount();
+        long missesBefore = pagePrefetcher.getMissCount();
+        for (int page = 1; page <= 3; page++) {
+            Page<MemberTeamDto> result = memberRepository.searchPageComplex(condition, PageRequest.of(page, 1));
+            assertThat(result.getContent()).extracting("username").containsExactly("prefetchMember" + (page + 1));
+            awaitPrefetch(page + 1);
+        }
+
+        assertThat(pagePrefetcher.getHitCount() - hitsBefore).isEqualTo(3);
+        assertThat(pagePrefetcher.getMissCount() - missesBefore).isZero();
+    }
+
+    @Test
+    public void writeDropsPrefetchedPages() throws InterruptedException {
+        memberRepository.searchPageSimple(condition, PageRequest.of(0, 2));
+        awaitPrefetch(1);
+
+        tx.executeWithoutResult(status -> em.persist(new Member("prefetchMember6", 60, em.find(Team.class, teamId))));
+
+        assertThat(pagePrefetcher.size()).isZero();
+        Page<MemberTeamDto> second = memberRepository.searchPageSimple(condition, PageRequest.of(1, 2));
+        assertThat(second.getTotalElements()).isEqualTo(6);
+    }
+
+    private void awaitPrefetch(int size) throws InterruptedException {
+        for (int i = 0; i < 100 && pagePrefetcher.size() < size; i++) {
+            Thread.sleep(50);
+        }
+        assertThat(pagePrefetcher.size()).isEqualTo(size);
+    }
+}
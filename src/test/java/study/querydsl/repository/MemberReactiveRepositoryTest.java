@@ -0,0 +1,118 @@
+package study.querydsl.repository;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+//R2DBC는 JPA 트랜잭션과 다른 커넥션이라 커밋된 데이터만 보인다 -> 커밋하면서 테스트
+@SpringBootTest
+class MemberReactiveRepositoryTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @Autowired
+    MemberReactiveRepository memberReactiveRepository;
+
+    TransactionTemplate tx;
+
+    @BeforeEach
+    public void before() {
+        tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> {
+            Team teamA = new Team("rxTeamA");
+            Team teamB = new Team("rxTeamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            for (int i = 1; i <= 10; i++) {
+                em.persist(new Member("rxMember" + i, i * 10, i % 2 == 0 ? teamA : teamB));
+            }
+            em.persist(new Member("rxMemberNoTeam", 30));
+        });
+    }
+
+    @AfterEach
+    public void after() {
+        tx.executeWithoutResult(status -> {
+            em.createQuery("delete from Member m where m.username like 'rxMember%'").executeUpdate();
+            em.createQuery("delete from Team t where t.name like 'rxTeam%'").executeUpdate();
+        });
+        memberRepository.reconcileTeamStats();
+    }
+
+    @Test
+    public void searchSameAsJpa() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("rxTeamA");
+        condition.setAgeGoe(30);
+        condition.setAgeLoe(80);
+
+        List<MemberTeamDto> result = memberReactiveRepository.search(condition).collectList().block();
+
+        assertThat(result).extracting("username", "age", "teamName")
+                .containsExactly(
+                        tuple("rxMember4", 40, "rxTeamA"),
+                        tuple("rxMember6", 60, "rxTeamA"),
+                        tuple("rxMember8", 80, "rxTeamA"));
+        assertThat(result).containsExactlyInAnyOrderElementsOf(memberJpaRepository.search(condition));
+    }
+
+    @Test
+    public void searchWithoutTeamAndUsernameLike() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsernamePrefix("rxMember");
+        condition.setUsernameContains("NoTeam");
+
+        List<MemberTeamDto> result = memberReactiveRepository.search(condition).collectList().block();
+
+        assertThat(result).extracting("username", "teamId", "teamName")
+                .containsExactly(tuple("rxMemberNoTeam", null, null));
+    }
+
+    //구독자가 요청한 만큼만 받아간다
+    @Test
+    public void backpressure() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsernamePrefix("rxMember");
+
+        AtomicLong requested = new AtomicLong();
+        List<MemberTeamDto> firstThree = memberReactiveRepository.search(condition)
+                .doOnRequest(requested::addAndGet)
+                .limitRequest(3)
+                .collectList()
+                .block();
+
+        assertThat(firstThree).hasSize(3);
+        assertThat(requested.get()).isEqualTo(3);
+    }
+
+    @Test
+    public void toIndexedMarkers() {
+        assertThat(MemberReactiveRepository.toIndexedMarkers("select 1 from member where username like ? escape '?' and age >= ?"))
+                .isEqualTo("select 1 from member where username like $1 escape '?' and age >= $2");
+    }
+}
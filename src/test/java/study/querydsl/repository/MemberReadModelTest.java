@@ -0,0 +1,171 @@
+package study.querydsl.repository;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+//읽기 모델은 커밋된 변경만 반영하므로 커밋하면서 테스트한다
+@SpringBootTest(properties = "member.read-model.enabled=true")
+@Import(SqlCaptor.class)
+class MemberReadModelTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberReadModel readModel;
+
+    @Autowired
+    SqlCaptor sqlCaptor;
+
+    TransactionTemplate tx;
+    Long teamAId;
+    Long teamBId;
+    Long member2Id;
+
+    @BeforeEach
+    public void before() {
+        tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> {
+            Team teamA = new Team("modelTeamA");
+            Team teamB = new Team("modelTeamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            Member member2 = new Member("modelMember2", 20, teamA);
+            em.persist(new Member("modelMember1", 10, teamA));
+            em.persist(member2);
+            em.persist(new Member("modelMember3", 30, teamB));
+            em.persist(new Member("modelMember4", 40, teamB));
+            teamAId = teamA.getId();
+            teamBId = teamB.getId();
+            member2Id = member2.getId();
+        });
+        readModel.invalidate();
+    }
+
+    @AfterEach
+    public void after() {
+        tx.executeWithoutResult(status -> {
+            em.createQuery("delete from Member m where m.username like 'modelMember%'").executeUpdate();
+            em.createQuery("delete from Team t where t.name like 'modelTeam%'").executeUpdate();
+        });
+        memberRepository.reconcileTeamStats();
+        readModel.invalidate();
+    }
+
+    @Test
+    public void searchServedFromReadModel() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("modelTeamB");
+        condition.setAgeGoe(35);
+        memberRepository.search(condition);
+
+        sqlCaptor.clear();
+        assertThat(memberRepository.search(condition))
+                .extracting("username", "age", "teamId", "teamName")
+                .containsExactly(tuple("modelMember4", 40, teamBId, "modelTeamB"));
+
+        MemberSearchCondition prefix = new MemberSearchCondition();
+        prefix.setUsernamePrefix("modelMember");
+        prefix.setAgeLoe(20);
+        assertThat(memberRepository.search(prefix)).extracting("username")
+                .containsExactly("modelMember1", "modelMember2");
+        assertThat(sqlCaptor.statements()).isEmpty();
+
+        assertThat(readModel.check().isConsistent()).isTrue();
+    }
+
+    @Test
+    public void committedChangesUpdateReadModel() {
+        MemberSearchCondition teamB = new MemberSearchCondition();
+        teamB.setTeamName("modelTeamB");
+        assertThat(memberRepository.search(teamB)).hasSize(2);
+
+        //팀 이동 + 나이 변경
+        tx.executeWithoutResult(status -> {
+            Member member2 = em.find(Member.class, member2Id);
+            member2.setAge(35);
+            member2.changeTeam(em.find(Team.class, teamBId));
+        });
+        assertThat(memberRepository.search(teamB)).extracting("username")
+                .containsExactly("modelMember3", "modelMember2", "modelMember4");
+
+        //팀명 변경
+        tx.executeWithoutResult(status -> em.find(Team.class, teamAId).setName("modelTeamRenamed"));
+        MemberSearchCondition renamed = new MemberSearchCondition();
+        renamed.setTeamName("modelTeamRenamed");
+        assertThat(memberRepository.search(renamed)).extracting("username", "teamName")
+                .containsExactly(tuple("modelMember1", "modelTeamRenamed"));
+
+        //롤백은 반영되지 않는다
+        tx.executeWithoutResult(status -> {
+            em.remove(em.find(Member.class, member2Id));
+            em.flush();
+            status.setRollbackOnly();
+        });
+        assertThat(memberRepository.search(teamB)).hasSize(3);
+
+        tx.executeWithoutResult(status -> em.remove(em.find(Member.class, member2Id)));
+        assertThat(memberRepository.search(teamB)).hasSize(2);
+
+        assertThat(readModel.check().isConsistent()).isTrue();
+    }
+
+    @Test
+    public void manyCommittedChangesStayConsistent() {
+        MemberSearchCondition prefix = new MemberSearchCondition();
+        prefix.setUsernamePrefix("modelMemberMany");
+        assertThat(memberRepository.search(prefix)).isEmpty();
+
+        //회원 id -> 팀 id 인덱스가 커지고(rehash) 중간 항목이 빠져도(remove) 맞는 파티션을 찾아야 한다
+        List<Long> ids = new ArrayList<>();
+        tx.executeWithoutResult(status -> {
+            Team teamA = em.find(Team.class, teamAId);
+            for (int i = 0; i < 40; i++) {
+                Member member = new Member("modelMemberMany" + i, i, teamA);
+                em.persist(member);
+                ids.add(member.getId());
+            }
+        });
+        tx.executeWithoutResult(status -> {
+            Team teamB = em.find(Team.class, teamBId);
+            for (int i = 0; i < ids.size(); i++) {
+                Member member = em.find(Member.class, ids.get(i));
+                if (i % 2 == 0) {
+                    em.remove(member);
+                } else if (i % 3 == 0) {
+                    member.changeTeam(teamB);
+                }
+            }
+        });
+
+        assertThat(memberRepository.search(prefix)).hasSize(20);
+        MemberSearchCondition teamB = new MemberSearchCondition();
+        teamB.setTeamName("modelTeamB");
+        teamB.setUsernamePrefix("modelMemberMany");
+        assertThat(memberRepository.search(teamB)).extracting("age")
+                .containsExactly(3, 9, 15, 21, 27, 33, 39);
+        assertThat(readModel.check().isConsistent()).isTrue();
+    }
+}
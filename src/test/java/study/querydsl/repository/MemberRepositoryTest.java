@@ -4,20 +4,28 @@ import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.CursorPage;
+import study.querydsl.dto.MemberColumns;
+import study.querydsl.dto.MemberDto;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.entity.Member;
 import study.querydsl.entity.Team;
+import study.querydsl.sql.SqlStatementCounter;
 
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
 
 @SpringBootTest
 @Transactional
+@Import(SqlCaptor.class)
 class MemberRepositoryTest {
 
     @Autowired
@@ -26,6 +34,18 @@ class MemberRepositoryTest {
     @Autowired
     MemberRepository memberRepository;
 
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @Autowired
+    MemberCountCache countCache;
+
+    @Autowired
+    SqlCaptor sqlCaptor;
+
+    @Autowired
+    MemberSearchPlanCache planCache;
+
     @Test
     public void basicTest(){
         Member member = new Member("member1", 10);
@@ -70,6 +90,32 @@ class MemberRepositoryTest {
         assertThat(result).extracting("username").containsExactly( "member4");
     }
 
+    //쓰기 트랜잭션 안에서는 커밋 전 회원이 회원명 인덱스에 없으므로 like로 찾는다
+    @Test
+    public void searchUsernamePrefixAndContains() {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+
+        em.persist(new Member("kim_one", 10, teamA));
+        em.persist(new Member("kimchi", 20, teamA));
+        em.persist(new Member("park%kim", 30, teamA));
+
+        MemberSearchCondition prefix = new MemberSearchCondition();
+        prefix.setUsernamePrefix("kim");
+        assertThat(memberRepository.search(prefix)).extracting("username").containsExactly("kim_one", "kimchi");
+        assertThat(memberRepository.searchPageComplex(prefix, PageRequest.of(0, 10)).getContent()).hasSize(2);
+
+        //like 와일드카드 문자는 그대로 비교한다
+        MemberSearchCondition contains = new MemberSearchCondition();
+        contains.setUsernameContains("%k");
+        assertThat(memberRepository.search(contains)).extracting("username").containsExactly("park%kim");
+
+        MemberSearchCondition both = new MemberSearchCondition();
+        both.setUsernamePrefix("kim");
+        both.setUsernameContains("_");
+        assertThat(memberRepository.searchMemberDto(both)).extracting("username").containsExactly("kim_one");
+    }
+
     @Test
     public void searchPageSimpleTeat() {
         Team teamA = new Team("teamA");
@@ -95,4 +141,348 @@ class MemberRepositoryTest {
         assertThat(result.getSize()).isEqualTo(3);
         assertThat(result.getContent()).extracting("username").containsExactly("member1", "member2", "member3");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void searchAfterTest() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+
+        em.persist(teamA);
+        em.persist(teamB);
+
+        Member member1 = new Member("member1", 10, teamA);
+        Member member2 = new Member("member2", 20, teamA);
+        Member member3 = new Member("member3", 30, teamB);
+        Member member4 = new Member("member4", 40, teamB);
+
+        em.persist(member1);
+        em.persist(member2);
+        em.persist(member3);
+        em.persist(member4);
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        CursorPage<MemberTeamDto> first = memberRepository.searchAfter(condition, null, 3);
+        assertThat(first.getContent()).extracting("username").containsExactly("member1", "member2", "member3");
+        assertThat(first.isHasNext()).isTrue();
+
+        CursorPage<MemberTeamDto> second = memberRepository.searchAfter(condition, first.getNextCursor(), 3);
+        assertThat(second.getContent()).extracting("username").containsExactly("member4");
+        assertThat(second.isHasNext()).isFalse();
+        assertThat(second.getNextCursor()).isNull();
+    }
+
+    @Test
+    public void searchAfterRejectsInvalidSize() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        assertThatThrownBy(() -> memberRepository.searchAfter(condition, null, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> memberRepository.searchAfter(condition, null, -1))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> memberRepository.searchAfter(condition, null, MemberRepository.MAX_CURSOR_PAGE_SIZE + 1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void countCacheTest() {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+
+        for (int i = 1; i <= 4; i++) {
+            em.persist(new Member("member" + i, i * 10, teamA));
+        }
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        PageRequest pageRequest = PageRequest.of(0, 2);
+
+        Page<MemberTeamDto> result = memberRepository.searchPageComplex(condition, pageRequest);
+        assertThat(result.getTotalElements()).isEqualTo(4);
+        assertThat(countCache.getIfPresent(condition)).hasValue(4);
+
+        //쓰기가 일어나면 캐시된 카운트는 버려진다
+        memberJpaRepository.save(new Member("member5", 50, teamA));
+        assertThat(countCache.getIfPresent(condition)).isEmpty();
+
+        Page<MemberTeamDto> afterSave = memberRepository.searchPageComplex(condition, pageRequest);
+        assertThat(afterSave.getTotalElements()).isEqualTo(5);
+    }
+
+    @Test
+    public void searchPageApproximateTest() {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+
+        for (int i = 1; i <= 4; i++) {
+            em.persist(new Member("member" + i, i * 10, teamA));
+        }
+        em.flush();
+        countCache.invalidateAll();
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        //2페이지부터는 카운트 쿼리 없이 한 건 더 읽어서 다음 페이지가 있으면 +1
+        Page<MemberTeamDto> result = memberRepository.searchPageApproximate(condition, PageRequest.of(1, 1));
+        assertThat(result.getContent()).extracting("username").containsExactly("member2");
+        assertThat(result.getTotalElements()).isEqualTo(3);
+        assertThat(result.hasNext()).isTrue();
+
+        //마지막 페이지는 다음 페이지가 없으므로 현재 페이지까지가 전부
+        result = memberRepository.searchPageApproximate(condition, PageRequest.of(1, 2));
+        assertThat(result.getContent()).extracting("username").containsExactly("member3", "member4");
+        assertThat(result.getTotalElements()).isEqualTo(4);
+        assertThat(result.hasNext()).isFalse();
+
+        assertThat(countCache.getIfPresent(condition)).isEmpty();
+    }
+
+    @Test
+    public void countQueryWithoutTeamConditionHasNoJoin() {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+
+        for (int i = 1; i <= 4; i++) {
+            em.persist(new Member("member" + i, i * 10, teamA));
+        }
+        em.flush();
+        countCache.invalidateAll();
+        sqlCaptor.clear();
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(10);
+
+        //컨텐츠 사이즈가 페이지 사이즈와 같으므로 카운트 쿼리가 나간다
+        Page<MemberTeamDto> result = memberRepository.searchPageComplex(condition, PageRequest.of(0, 2));
+        assertThat(result.getTotalElements()).isEqualTo(4);
+
+        List<String> countQueries = sqlCaptor.statements().stream()
+                .filter(sql -> sql.contains("count("))
+                .toList();
+        assertThat(countQueries).hasSize(1);
+        assertThat(countQueries.get(0)).doesNotContain("join");
+    }
+
+    @Test
+    public void countQueryWithTeamConditionKeepsJoin() {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+
+        for (int i = 1; i <= 4; i++) {
+            em.persist(new Member("member" + i, i * 10, teamA));
+        }
+        em.flush();
+        countCache.invalidateAll();
+        sqlCaptor.clear();
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+
+        memberRepository.searchPageComplex(condition, PageRequest.of(0, 2));
+
+        assertThat(sqlCaptor.statements())
+                .filteredOn(sql -> sql.contains("count("))
+                .singleElement()
+                .satisfies(sql -> assertThat(sql).contains("join"));
+    }
+
+    @Test
+    public void searchMemberDtoWithoutTeamConditionHasNoJoin() {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.flush();
+        sqlCaptor.clear();
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUserName("member1");
+
+        List<MemberDto> result = memberRepository.searchMemberDto(condition);
+        assertThat(result).extracting("username").containsExactly("member1");
+
+        assertThat(sqlCaptor.statements())
+                .singleElement()
+                .satisfies(sql -> assertThat(sql).doesNotContain("join"));
+    }
+
+    @Test
+    public void searchPlanCacheTest() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+
+        MemberSearchCondition first = new MemberSearchCondition();
+        first.setTeamName("teamA");
+        first.setAgeGoe(15);
+
+        MemberSearchCondition second = new MemberSearchCondition();
+        second.setTeamName("teamB");
+        second.setAgeGoe(35);
+
+        List<MemberTeamDto> result1 = memberRepository.search(first);
+        long hitsBefore = planCache.getHitCount();
+
+        //같은 모양(팀명 + 나이 하한)이면 값이 달라도 만들어둔 JPQL을 다시 쓴다
+        List<MemberTeamDto> result2 = memberRepository.search(second);
+
+        assertThat(result1).extracting("username").containsExactly("member2");
+        assertThat(result2).extracting("username", "teamName").containsExactly(tuple("member4", "teamB"));
+        assertThat(planCache.getHitCount()).isEqualTo(hitsBefore + 1);
+    }
+
+    @Test
+    public void bulkAgePlusTest() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+
+        em.persist(teamA);
+        em.persist(teamB);
+
+        Member member1 = new Member("member1", 10, teamA);
+        Member member2 = new Member("member2", 20, teamA);
+        Member member3 = new Member("member3", 30, teamA);
+        Member member4 = new Member("member4", 40, teamB);
+
+        em.persist(member1);
+        em.persist(member2);
+        em.persist(member3);
+        em.persist(member4);
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+
+        //청크 크기 2 -> teamA 3명이 두 번에 나눠서 수정된다
+        long count = memberRepository.bulkAgePlus(condition, 1);
+        assertThat(count).isEqualTo(3);
+
+        //수정된 회원만 영속성 컨텍스트에서 내려가고, 나머지는 그대로 남아있다
+        assertThat(em.contains(member1)).isFalse();
+        assertThat(em.contains(member3)).isFalse();
+        assertThat(em.contains(member4)).isTrue();
+
+        assertThat(memberRepository.findById(member1.getId()).get().getAge()).isEqualTo(11);
+        assertThat(memberRepository.findById(member3.getId()).get().getAge()).isEqualTo(31);
+        assertThat(memberRepository.findById(member4.getId()).get().getAge()).isEqualTo(40);
+    }
+
+    @Test
+    public void bulkDeleteByTest() {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+
+        Member member1 = new Member("member1", 10, teamA);
+        Member member2 = new Member("member2", 20, teamA);
+        Member member3 = new Member("member3", 30, teamA);
+
+        em.persist(member1);
+        em.persist(member2);
+        em.persist(member3);
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(20);
+
+        long count = memberRepository.bulkDeleteBy(condition);
+
+        assertThat(count).isEqualTo(2);
+        assertThat(em.contains(member2)).isFalse();
+        assertThat(teamA.getMembers()).containsExactly(member1);
+        assertThat(memberRepository.findAll()).containsExactly(member1);
+    }
+
+    @Test
+    public void findMembersWithTeamsTest() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+        em.flush();
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        //팀 이름까지 다 읽었을 때 나간 SQL 수
+        assertThat(statementsToReadTeamNames(condition, FetchPlan.FETCH_JOIN)).isEqualTo(1);
+        assertThat(statementsToReadTeamNames(condition, FetchPlan.ENTITY_GRAPH)).isEqualTo(1);
+        //회원 1번 + 팀 2개를 IN 절 1번
+        assertThat(statementsToReadTeamNames(condition, FetchPlan.BATCH)).isEqualTo(2);
+    }
+
+    private int statementsToReadTeamNames(MemberSearchCondition condition, FetchPlan fetchPlan) {
+        em.clear();
+        try (SqlStatementCounter.Counter counter = SqlStatementCounter.start()) {
+            List<Member> members = memberRepository.findMembersWithTeams(condition, fetchPlan);
+            assertThat(members).extracting(m -> m.getTeam().getName())
+                    .containsExactlyInAnyOrder("teamA", "teamA", "teamB", "teamB");
+            return counter.getCount();
+        }
+    }
+
+    @Test
+    public void searchPageParallelTest() {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+
+        for (int i = 1; i <= 4; i++) {
+            em.persist(new Member("member" + i, i * 10, teamA));
+        }
+        countCache.invalidateAll();
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        PageRequest pageRequest = PageRequest.of(0, 2);
+
+        //쓰기 트랜잭션 안(테스트)에서는 커밋 안된 데이터를 봐야 하므로 순서대로 실행된다
+        Page<MemberTeamDto> result = memberRepository.searchPageParallel(condition, pageRequest);
+        assertThat(result.getContent()).extracting("username").containsExactly("member1", "member2");
+        assertThat(result.getTotalElements()).isEqualTo(4);
+    }
+
+    @Test
+    public void fetchColumnsTest() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        Member member1 = new Member("member1", 10, teamA);
+        em.persist(member1);
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40));
+        em.flush();
+        em.clear();
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(10);
+        MemberColumns columns = memberRepository.fetchColumns(condition);
+
+        assertThat(columns.size()).isEqualTo(4);
+        assertThat(columns.ages()).containsExactlyInAnyOrder(10, 20, 30, 40);
+        assertThat(columns.memberIds()).contains(member1.getId());
+        //팀명은 사전에 팀 수만큼만 들어간다
+        assertThat(columns.teamNameDictionary()).containsExactlyInAnyOrder("teamA", "teamB");
+        assertThat(columns.averageAgeByTeamName())
+                .containsEntry("teamA", 15.0)
+                .containsEntry("teamB", 30.0)
+                .containsEntry(null, 40.0);
+
+        for (int i = 0; i < columns.size(); i++) {
+            if (columns.username(i).equals("member4")) {
+                assertThat(columns.teamId(i)).isEqualTo(MemberColumns.NO_ID);
+                assertThat(columns.teamName(i)).isNull();
+            }
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package study.querydsl.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//2차 캐시는 트랜잭션(요청)을 넘어서 공유되므로 커밋하면서 테스트한다
+//@Transactional을 붙이지 않고 끝나면 직접 지운다
+@SpringBootTest
+class MemberSecondLevelCacheTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    EntityManagerFactory emf;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    TransactionTemplate tx;
+    Statistics statistics;
+    Long memberId;
+
+    @BeforeEach
+    public void before() {
+        tx = new TransactionTemplate(transactionManager);
+        statistics = emf.unwrap(SessionFactory.class).getStatistics();
+
+        memberId = tx.execute(status -> {
+            Team team = new Team("cacheTeam");
+            em.persist(team);
+            Member member = new Member("cacheMember", 10, team);
+            em.persist(member);
+            return member.getId();
+        });
+        emf.getCache().evictAll();
+        statistics.clear();
+    }
+
+    @AfterEach
+    public void after() {
+        tx.executeWithoutResult(status -> {
+            em.createQuery("delete from Member m where m.username = 'cacheMember'").executeUpdate();
+            em.createQuery("delete from Team t where t.name = 'cacheTeam'").executeUpdate();
+        });
+    }
+
+    @Test
+    public void findByIdHitsSecondLevelCache() {
+        tx.executeWithoutResult(status -> memberJpaRepository.findById(memberId));
+        long statementsAfterFirst = statistics.getPrepareStatementCount();
+
+        //다른 트랜잭션(다른 요청)에서 같은 회원을 조회하면 DB에 가지 않는다
+        tx.executeWithoutResult(status -> {
+            Member member = memberJpaRepository.findById(memberId).get();
+            assertThat(member.getUsername()).isEqualTo("cacheMember");
+        });
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(statementsAfterFirst);
+        assertThat(statistics.getDomainDataRegionStatistics(Member.class.getName()).getHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void findByUsernameHitsQueryCache() {
+        tx.executeWithoutResult(status -> memberRepository.findByUsername("cacheMember"));
+        tx.executeWithoutResult(status -> assertThat(memberRepository.findByUsername("cacheMember"))
+                .extracting("id").containsExactly(memberId));
+
+        assertThat(statistics.getQueryCacheHitCount()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,131 @@
+package study.querydsl.repository;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//회원명 인덱스는 커밋된 변경만 반영하므로 커밋하면서 테스트한다
+@SpringBootTest
+@Import(SqlCaptor.class)
+class MemberUsernameIndexTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberUsernameIndex usernameIndex;
+
+    @Autowired
+    SqlCaptor sqlCaptor;
+
+    TransactionTemplate tx;
+    Long aliceId;
+
+    @BeforeEach
+    public void before() {
+        tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> {
+            Team team = new Team("indexTeam");
+            em.persist(team);
+            Member alice = new Member("indexAlice", 10, team);
+            em.persist(alice);
+            em.persist(new Member("indexAlan", 20, team));
+            em.persist(new Member("indexBob", 30, team));
+            aliceId = alice.getId();
+        });
+    }
+
+    @AfterEach
+    public void after() {
+        tx.executeWithoutResult(status -> {
+            em.createQuery("delete from Member m where m.username like 'index%'").executeUpdate();
+            em.createQuery("delete from Team t where t.name like 'index%'").executeUpdate();
+        });
+        memberRepository.reconcileTeamStats();
+        //벌크 delete는 인덱스에 알리지 않으므로 다음 테스트를 위해 다시 만들게 한다
+        usernameIndex.invalidate();
+    }
+
+    @Test
+    public void prefixAndContainsUseIndex() {
+        assertThat(usernameIndex.lookup("indexAl", null)).hasValueSatisfying(ids -> assertThat(ids).hasSize(2));
+        assertThat(usernameIndex.lookup(null, "xBo")).hasValueSatisfying(ids -> assertThat(ids).hasSize(1));
+        assertThat(usernameIndex.lookup("indexAl", "ice")).hasValue(List.of(aliceId));
+        assertThat(usernameIndex.lookup(null, "nobody")).hasValue(List.of());
+        //3글자보다 짧은 검색어도 1, 2-gram 역색인으로 찾는다
+        assertThat(usernameIndex.lookup(null, "Bo")).hasValueSatisfying(ids -> assertThat(ids).hasSize(1));
+        assertThat(usernameIndex.lookup("indexAl", "c")).hasValue(List.of(aliceId));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsernameContains("dexAl");
+        sqlCaptor.clear();
+        assertThat(memberRepository.search(condition)).extracting("username")
+                .containsExactlyInAnyOrder("indexAlice", "indexAlan");
+        assertThat(memberRepository.searchPageComplex(condition, PageRequest.of(0, 1)).getTotalElements()).isEqualTo(2);
+        //like 대신 인덱스에서 찾은 id로 조회
+        assertThat(sqlCaptor.statements()).noneMatch(sql -> sql.contains(" like "));
+    }
+
+    @Test
+    public void searchBindsIndexIds() {
+        MemberSearchCondition prefix = new MemberSearchCondition();
+        prefix.setUsernamePrefix("indexAl");
+        sqlCaptor.clear();
+        assertThat(memberRepository.search(prefix)).extracting("username")
+                .containsExactlyInAnyOrder("indexAlice", "indexAlan");
+
+        //id가 하나여도 in 조건으로 바인딩된다
+        MemberSearchCondition contains = new MemberSearchCondition();
+        contains.setUsernameContains("xBo");
+        assertThat(memberRepository.search(contains)).extracting("username")
+                .containsExactly("indexBob");
+
+        MemberSearchCondition both = new MemberSearchCondition();
+        both.setUsernamePrefix("indexAl");
+        both.setUsernameContains("ice");
+        both.setAgeGoe(5);
+        assertThat(memberRepository.search(both)).extracting("memberId")
+                .containsExactly(aliceId);
+        assertThat(sqlCaptor.statements()).isNotEmpty()
+                .noneMatch(sql -> sql.contains(" like "));
+    }
+
+    @Test
+    public void committedChangesAreIndexed() {
+        usernameIndex.lookup("index", null);
+
+        tx.executeWithoutResult(status -> em.find(Member.class, aliceId).setUsername("indexCarol"));
+        assertThat(usernameIndex.lookup("indexAlice", null)).hasValue(List.of());
+        assertThat(usernameIndex.lookup("indexCarol", null)).hasValue(List.of(aliceId));
+
+        //롤백된 변경은 반영되지 않는다
+        tx.executeWithoutResult(status -> {
+            em.persist(new Member("indexDave", 40));
+            status.setRollbackOnly();
+        });
+        assertThat(usernameIndex.lookup("indexDave", null)).hasValue(List.of());
+
+        tx.executeWithoutResult(status -> em.remove(em.find(Member.class, aliceId)));
+        assertThat(usernameIndex.lookup("indexCarol", null)).hasValue(List.of());
+    }
+}
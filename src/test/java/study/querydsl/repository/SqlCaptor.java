@@ -0,0 +1,43 @@
+package study.querydsl.repository;
+
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+//p6spy를 통해 실제로 DB에 나간 SQL을 모아두는 테스트용 리스너
+//use_sql_comments로 붙는 JPQL 주석은 제거해서 보관(주석 안의 JPQL에 join이 들어있어서)
+public class SqlCaptor extends SimpleJdbcEventListener {
+
+    private final List<String> statements = new CopyOnWriteArrayList<>();
+    private final List<String> statementsWithValues = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        String sql = statementInformation.getSql();
+        if (sql != null) {
+            statements.add(stripComments(sql).toLowerCase());
+            statementsWithValues.add(stripComments(statementInformation.getSqlWithValues()));
+        }
+    }
+
+    public List<String> statements() {
+        return List.copyOf(statements);
+    }
+
+    //바인딩 값이 SQL에 그대로 들어간 버전, 그대로 다시 실행(EXPLAIN 등)할 수 있다
+    public List<String> statementsWithValues() {
+        return List.copyOf(statementsWithValues);
+    }
+
+    public void clear() {
+        statements.clear();
+        statementsWithValues.clear();
+    }
+
+    private static String stripComments(String sql) {
+        return sql.replaceAll("(?s)/\\*.*?\\*/", "").trim();
+    }
+}
@@ -0,0 +1,149 @@
+package study.querydsl.repository;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.TeamStatsDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+//팀 통계는 커밋 직전에 반영되므로 커밋하면서 테스트한다
+//@Transactional을 붙이지 않고 끝나면 직접 지운다
+@SpringBootTest
+@Import(SqlCaptor.class)
+class TeamStatsTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    SqlCaptor sqlCaptor;
+
+    TransactionTemplate tx;
+    Long member2Id;
+    Long teamBId;
+
+    @BeforeEach
+    public void before() {
+        tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> {
+            Team teamA = new Team("statsTeamA");
+            Team teamB = new Team("statsTeamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            Member member2 = new Member("statsMember2", 20, teamA);
+            em.persist(new Member("statsMember1", 10, teamA));
+            em.persist(member2);
+            em.persist(new Member("statsMember3", 30, teamB));
+            member2Id = member2.getId();
+            teamBId = teamB.getId();
+        });
+    }
+
+    @AfterEach
+    public void after() {
+        tx.executeWithoutResult(status -> {
+            em.createQuery("delete from Member m where m.username like 'statsMember%'").executeUpdate();
+            em.createQuery("delete from Team t where t.name like 'statsTeam%'").executeUpdate();
+        });
+        memberRepository.reconcileTeamStats();
+    }
+
+    @Test
+    public void persistUpdatesTeamStats() {
+        assertThat(stats()).extracting("teamName", "memberCount", "averageAge", "maxAge", "minAge")
+                .containsExactly(
+                        tuple("statsTeamA", 2L, 15.0, 20, 10),
+                        tuple("statsTeamB", 1L, 30.0, 30, 30));
+    }
+
+    @Test
+    public void changeTeamAndAgeMovesStats() {
+        tx.executeWithoutResult(status -> {
+            Member member2 = em.find(Member.class, member2Id);
+            member2.setAge(25);
+            member2.changeTeam(em.find(Team.class, teamBId));
+        });
+
+        //teamA는 최대 나이 회원이 빠졌으므로 인덱스로 다시 구한 값
+        assertThat(stats()).extracting("teamName", "memberCount", "averageAge", "maxAge", "minAge")
+                .containsExactly(
+                        tuple("statsTeamA", 1L, 10.0, 10, 10),
+                        tuple("statsTeamB", 2L, 27.5, 30, 25));
+    }
+
+    @Test
+    public void removeUpdatesTeamStats() {
+        tx.executeWithoutResult(status -> em.remove(em.find(Member.class, member2Id)));
+
+        assertThat(stats()).extracting("teamName", "memberCount", "maxAge")
+                .containsExactly(
+                        tuple("statsTeamA", 1L, 10),
+                        tuple("statsTeamB", 1L, 30));
+    }
+
+    @Test
+    public void rollbackLeavesTeamStats() {
+        TransactionTemplate rollback = new TransactionTemplate(transactionManager);
+        rollback.executeWithoutResult(status -> {
+            em.persist(new Member("statsMember4", 40, em.find(Team.class, teamBId)));
+            em.flush();
+            status.setRollbackOnly();
+        });
+
+        assertThat(stats()).extracting("teamName", "memberCount")
+                .containsExactly(tuple("statsTeamA", 2L), tuple("statsTeamB", 1L));
+    }
+
+    @Test
+    public void bulkOperationReconcilesTeamStats() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("statsTeamA");
+        memberRepository.bulkAgePlus(condition, 1);
+
+        assertThat(stats()).extracting("teamName", "averageAge", "maxAge", "minAge")
+                .containsExactly(
+                        tuple("statsTeamA", 16.0, 21, 11),
+                        tuple("statsTeamB", 30.0, 30, 30));
+    }
+
+    @Test
+    public void bulkOperationRecomputesOnlyTouchedTeams() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("statsTeamB");
+        sqlCaptor.clear();
+        memberRepository.bulkDeleteBy(condition);
+
+        assertThat(stats()).extracting("teamName", "memberCount")
+                .containsExactly(tuple("statsTeamA", 2L));
+        //team_stats 전체를 지우고 다시 만들지 않고 청크 회원의 팀 row만
+        assertThat(sqlCaptor.statements())
+                .filteredOn(sql -> sql.startsWith("delete from team_stats"))
+                .isNotEmpty()
+                .allMatch(sql -> sql.contains("where team_id in"));
+    }
+
+    private List<TeamStatsDto> stats() {
+        return memberRepository.findTeamStats().stream()
+                .filter(stats -> stats.getTeamName().startsWith("statsTeam"))
+                .toList();
+    }
+}
@@ -0,0 +1,89 @@
+package study.querydsl.service;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.service.MemberBulkLoader.NewMember;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class MemberBulkLoaderTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberBulkLoader memberBulkLoader;
+
+    @Test
+    public void load() {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+
+        long count = memberBulkLoader.load(IntStream.range(0, 250)
+                .mapToObj(i -> new NewMember("member" + i, i % 100, teamA.getId())));
+
+        assertThat(count).isEqualTo(250);
+        assertThat(countMembers()).isEqualTo(250);
+        //호출한 쪽의 팀은 영속 상태 그대로, members 컬렉션에 적재한 회원이 쌓이지 않는다
+        assertThat(em.contains(teamA)).isTrue();
+        assertThat(teamA.getMembers()).isEmpty();
+        assertThat(em.createQuery("select m.team.name from Member m where m.username = 'member7'", String.class)
+                .getSingleResult()).isEqualTo("teamA");
+    }
+
+    @Test
+    public void loadWithJdbc() {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+
+        //엔티티로 저장한 회원과 JDBC로 넣은 회원의 id가 겹치지 않아야 한다
+        Member before = new Member("before", 10, teamA);
+        em.persist(before);
+
+        long count = memberBulkLoader.loadWithJdbc(IntStream.range(0, 120)
+                .mapToObj(i -> new NewMember("member" + i, i % 100, teamA.getId())));
+
+        Member after = new Member("after", 20, teamA);
+        em.persist(after);
+        em.flush();
+        em.clear();
+
+        assertThat(count).isEqualTo(120);
+        List<Long> ids = em.createQuery("select m.id from Member m", Long.class).getResultList();
+        assertThat(ids).hasSize(122).doesNotHaveDuplicates();
+        assertThat(em.createQuery("select m.team.name from Member m where m.username = 'member7'", String.class)
+                .getSingleResult()).isEqualTo("teamA");
+    }
+
+    @Test
+    public void loadWithJdbcEvictsTeamMembersCache() {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        em.flush();
+        em.clear();
+
+        //빈 회원 목록이 2차 캐시(Team.members)에 올라간다
+        assertThat(em.find(Team.class, teamA.getId()).getMembers()).isEmpty();
+        em.clear();
+
+        memberBulkLoader.loadWithJdbc(IntStream.range(0, 3)
+                .mapToObj(i -> new NewMember("member" + i, i, teamA.getId())));
+        em.clear();
+
+        assertThat(em.find(Team.class, teamA.getId()).getMembers()).hasSize(3);
+    }
+
+    private long countMembers() {
+        return em.createQuery("select count(m) from Member m", Long.class).getSingleResult();
+    }
+}
@@ -0,0 +1,125 @@
+package study.querydsl.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberRepository;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+//write-behind는 별도 스레드/트랜잭션에서 반영되므로 커밋하면서 테스트한다
+//window를 길게 잡아서 flush()를 부를 때만 반영되게 한다
+@SpringBootTest(properties = "member.write-behind.window=1h")
+class MemberWriteBehindTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    MemberWriteBehind writeBehind;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    TransactionTemplate tx;
+    Long teamId;
+    Long memberId;
+
+    @BeforeEach
+    public void before() {
+        tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> {
+            Team team = new Team("writeBehindTeam");
+            em.persist(team);
+            Member member = new Member("writeBehindMember1", 10, team);
+            em.persist(member);
+            teamId = team.getId();
+            memberId = member.getId();
+        });
+    }
+
+    @AfterEach
+    public void after() {
+        tx.executeWithoutResult(status -> {
+            em.createQuery("delete from Member m where m.username like 'writeBehind%'").executeUpdate();
+            em.createQuery("delete from Team t where t.name like 'writeBehind%'").executeUpdate();
+        });
+        memberRepository.reconcileTeamStats();
+    }
+
+    @Test
+    public void coalesceUpdates() {
+        long coalescedBefore = writeBehind.getCoalescedCount();
+        long writtenBefore = writeBehind.getWrittenCount();
+
+        CompletableFuture<Void> first = writeBehind.updateAsync(memberId, new MemberWriteBehind.Update(null, 20));
+        CompletableFuture<Void> second = writeBehind.updateAsync(memberId, new MemberWriteBehind.Update("writeBehindRenamed", 30));
+        assertThat(first).isNotDone();
+
+        writeBehind.flush();
+
+        assertThat(first).isCompleted();
+        assertThat(second).isCompleted();
+        //두 수정이 합쳐져서 한 번만 반영된다
+        assertThat(writeBehind.getCoalescedCount() - coalescedBefore).isEqualTo(1);
+        assertThat(writeBehind.getWrittenCount() - writtenBefore).isEqualTo(1);
+
+        Member member = tx.execute(status -> em.find(Member.class, memberId));
+        assertThat(member.getUsername()).isEqualTo("writeBehindRenamed");
+        assertThat(member.getAge()).isEqualTo(30);
+    }
+
+    @Test
+    public void saveAsync() {
+        CompletableFuture<Long> saved = writeBehind.saveAsync("writeBehindMember2", 40, teamId);
+
+        writeBehind.flush();
+
+        Long id = saved.join();
+        Member member = tx.execute(status -> em.find(Member.class, id));
+        assertThat(member.getUsername()).isEqualTo("writeBehindMember2");
+        assertThat(member.getAge()).isEqualTo(40);
+        assertThat(tx.execute(status -> em.find(Member.class, id).getTeam().getId())).isEqualTo(teamId);
+    }
+
+    //없는 팀으로 저장하는 요청 하나 때문에 같은 배치의 다른 요청이 실패하지 않는다
+    @Test
+    public void failedItemDoesNotFailBatch() {
+        CompletableFuture<Void> updated = writeBehind.updateAsync(memberId, new MemberWriteBehind.Update(null, 20));
+        CompletableFuture<Long> invalid = writeBehind.saveAsync("writeBehindInvalid", 10, -1L);
+        CompletableFuture<Long> saved = writeBehind.saveAsync("writeBehindMember3", 30, teamId);
+
+        writeBehind.flush();
+
+        assertThatThrownBy(invalid::join).isInstanceOf(CompletionException.class);
+        assertThat(updated).isCompleted();
+        assertThat(saved.join()).isNotNull();
+        assertThat(tx.execute(status -> em.find(Member.class, memberId).getAge())).isEqualTo(20);
+    }
+
+    @Test
+    public void missingMemberFails() {
+        CompletableFuture<Void> future = writeBehind.updateAsync(-1L, new MemberWriteBehind.Update(null, 20));
+
+        writeBehind.flush();
+
+        assertThatThrownBy(future::join)
+                .isInstanceOf(CompletionException.class)
+                .hasCauseInstanceOf(EntityNotFoundException.class);
+    }
+}
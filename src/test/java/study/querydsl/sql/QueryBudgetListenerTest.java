@@ -0,0 +1,46 @@
+package study.querydsl.sql;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@Transactional
+class QueryBudgetListenerTest {
+
+    @Autowired
+    EntityManager em;
+
+    @AfterEach
+    public void after() {
+        QueryBudgetListener.close();
+    }
+
+    @Test
+    public void enforcedBudgetFailsOnExtraStatement() {
+        QueryBudgetListener.open("test", 1, true);
+
+        em.createQuery("select m from Member m").getResultList();
+
+        assertThatThrownBy(() -> em.createQuery("select t from Team t").getResultList())
+                .hasStackTraceContaining(QueryBudgetExceededException.class.getSimpleName());
+    }
+
+    @Test
+    public void warnOnlyBudgetLetsStatementsRun() {
+        QueryBudgetListener.open("test", 1, false);
+
+        em.createQuery("select m from Member m").getResultList();
+        em.createQuery("select t from Team t").getResultList();
+
+        QueryBudgetListener.Budget budget = QueryBudgetListener.close();
+        assertThat(budget.getUsed()).isEqualTo(2);
+        assertThat(budget.isExceeded()).isTrue();
+    }
+}